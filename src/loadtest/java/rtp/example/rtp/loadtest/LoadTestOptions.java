@@ -0,0 +1,117 @@
+package rtp.example.rtp.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of {@link PriceStreamLoadTest}, given as {@code --name=value}.
+ */
+class LoadTestOptions {
+
+    static final String ALL_PRICES_TOPIC = "/topic/prices";
+
+    private static final String DEFAULT_SYMBOLS = "AAPL,MSFT,GOOGL,AMZN,TSLA";
+    private static final Set<String> NAMES = Set.of("url", "transport", "sessions", "connect-rate", "duration",
+            "warmup", "report-interval", "symbols", "universe", "symbols-per-session", "firehose", "max-frame-size");
+
+    final String url;
+    final boolean sockJs;
+    final int sessions;
+    final int connectRate;
+    final Duration duration;
+    final Duration warmup;
+    final Duration reportInterval;
+    final List<String> symbols;
+    final int symbolsPerSession;
+    final double firehoseShare;
+    final int maxFrameSize;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.url = values.getOrDefault("url", "http://localhost:8080/ws-trading");
+        String transport = values.getOrDefault("transport", "sockjs");
+        if (!transport.equals("sockjs") && !transport.equals("websocket")) {
+            throw new IllegalArgumentException("--transport must be sockjs or websocket");
+        }
+        this.sockJs = transport.equals("sockjs");
+        this.sessions = Integer.parseInt(values.getOrDefault("sessions", "1000"));
+        this.connectRate = Integer.parseInt(values.getOrDefault("connect-rate", "200"));
+        this.duration = Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60")));
+        this.warmup = Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10")));
+        this.reportInterval = Duration.ofSeconds(Long.parseLong(values.getOrDefault("report-interval", "5")));
+        this.symbolsPerSession = Integer.parseInt(values.getOrDefault("symbols-per-session", "1"));
+        this.firehoseShare = Double.parseDouble(values.getOrDefault("firehose", "0"));
+        this.maxFrameSize = Integer.parseInt(values.getOrDefault("max-frame-size", String.valueOf(4 * 1024 * 1024)));
+
+        // Configured symbols plus the synthetic feed's generated SYN0001..SYNnnnn universe
+        List<String> symbols = new ArrayList<>(Arrays.asList(values.getOrDefault("symbols", DEFAULT_SYMBOLS).split(",")));
+        int universe = Integer.parseInt(values.getOrDefault("universe", "0"));
+        for (int i = 1; i <= universe; i++) {
+            symbols.add(String.format("SYN%04d", i));
+        }
+        this.symbols = List.copyOf(symbols);
+
+        if (sessions < 1 || connectRate < 1 || symbolsPerSession < 0 || firehoseShare < 0 || firehoseShare > 1) {
+            throw new IllegalArgumentException("Invalid load settings: " + values);
+        }
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int split = arg.indexOf('=');
+            String name = arg.substring(2, split);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name);
+            }
+            values.put(name, arg.substring(split + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    // SockJS clients take the endpoint URL; raw WebSocket clients connect to its /websocket path
+    String connectUrl() {
+        if (sockJs) {
+            return url;
+        }
+        return url.replaceFirst("^http", "ws") + "/websocket";
+    }
+
+    // Price topics for the n-th session: every symbol for a firehose share of sessions, otherwise a
+    // rotating slice of the symbol list so subscriptions spread evenly
+    List<String> topicsFor(int session) {
+        if (firehoseShare > 0 && session % Math.max(1, Math.round(1 / firehoseShare)) == 0) {
+            return List.of(ALL_PRICES_TOPIC);
+        }
+        List<String> topics = new ArrayList<>(symbolsPerSession);
+        for (int i = 0; i < Math.min(symbolsPerSession, symbols.size()); i++) {
+            topics.add(ALL_PRICES_TOPIC + "/" + symbols.get((session * symbolsPerSession + i) % symbols.size()));
+        }
+        return topics;
+    }
+
+    static String usage() {
+        return """
+                Options (all --name=value):
+                  url                  SockJS endpoint (default http://localhost:8080/ws-trading)
+                  transport            sockjs or websocket (default sockjs)
+                  sessions             concurrent STOMP sessions (default 1000)
+                  connect-rate         new sessions per second while ramping up (default 200)
+                  duration             seconds to measure after warm-up (default 60)
+                  warmup               seconds after ramp-up before measuring (default 10)
+                  report-interval      seconds between progress lines (default 5)
+                  symbols              comma-separated symbols (default AAPL,MSFT,GOOGL,AMZN,TSLA)
+                  universe             also use SYN0001..SYNnnnn from the synthetic feed (default 0)
+                  symbols-per-session  per-symbol topics each session subscribes to (default 1)
+                  firehose             share of sessions subscribing to /topic/prices instead (default 0)
+                  max-frame-size       largest frame a firehose session accepts, in bytes (default 4MB)
+                """;
+    }
+}
@@ -0,0 +1,74 @@
+package rtp.example.rtp.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram shared by all simulated sessions.
+ * <p>
+ * Latency is recorded in microseconds into an HdrHistogram {@link Recorder}, so sessions record without
+ * locking and the reporter takes one interval histogram per progress line.
+ */
+class LoadTestStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    final AtomicInteger connected = new AtomicInteger();
+    final AtomicInteger connectFailures = new AtomicInteger();
+    final AtomicInteger lost = new AtomicInteger();
+
+    final LongAdder frames = new LongAdder();
+    final LongAdder updates = new LongAdder();
+    final LongAdder snapshots = new LongAdder();
+    // Sequence numbers skipped between two updates of a symbol on one subscription
+    final LongAdder dropped = new LongAdder();
+    // Updates at or below a sequence already seen, e.g. one racing its subscribe snapshot
+    final LongAdder stale = new LongAdder();
+
+    private final Recorder latency = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+    private volatile boolean measuring;
+
+    void recordLatency(long micros) {
+        if (measuring) {
+            latency.recordValue(Math.min(Math.max(micros, 0), MAX_LATENCY_MICROS));
+        }
+    }
+
+    // Start counting towards the final summary, dropping anything recorded during ramp-up and warm-up
+    void startMeasuring() {
+        latency.reset();
+        measuring = true;
+    }
+
+    // Latency recorded since the previous call; also added to the run total
+    synchronized Histogram takeInterval() {
+        Histogram interval = latency.getIntervalHistogram();
+        total.add(interval);
+        return interval;
+    }
+
+    synchronized Histogram total() {
+        return total.copy();
+    }
+
+    static String describe(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "no samples";
+        }
+        return String.format("p50=%s p90=%s p99=%s p99.9=%s max=%s",
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2fms", micros / 1000.0);
+    }
+}
@@ -0,0 +1,150 @@
+package rtp.example.rtp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import org.HdrHistogram.Histogram;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for the {@code /ws-trading} price stream.
+ * <p>
+ * Opens many SockJS (or raw WebSocket) STOMP sessions at a fixed connect rate, subscribes each to price
+ * topics and reports, every few seconds and at the end, updates received, tick-to-client latency
+ * percentiles, updates the server dropped (sequence gaps) and sessions it closed. Intended to run against
+ * an instance with the {@code synthetic} profile on the same host, e.g.
+ * {@code ./gradlew loadTest -Pargs="--sessions=2000 --universe=500 --symbols-per-session=5"}.
+ */
+public class PriceStreamLoadTest {
+
+    // Per-symbol frames and snapshots are a few hundred bytes, batches a few KB
+    private static final int SYMBOL_FRAME_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadTestOptions.usage());
+            System.exit(2);
+            return;
+        }
+        new PriceStreamLoadTest().run(options);
+        System.exit(0);
+    }
+
+    private final LoadTestStats stats = new LoadTestStats();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private long lastUpdates;
+    private long lastDropped;
+
+    private void run(LoadTestOptions options) throws InterruptedException {
+        // Tomcat allocates the full message buffer for every session, so only firehose sessions get the
+        // large one their /topic/prices snapshot needs
+        WebSocketStompClient symbolClient = stompClient(options, SYMBOL_FRAME_SIZE);
+        WebSocketStompClient firehoseClient = stompClient(options, options.maxFrameSize);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long intervalMillis = options.reportInterval.toMillis();
+        reporter.scheduleAtFixedRate(() -> report(options.reportInterval), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        System.out.printf("Connecting %d sessions to %s (%s) at %d/s%n", options.sessions, options.connectUrl(),
+                options.sockJs ? "SockJS" : "WebSocket", options.connectRate);
+        List<SimulatedClient> clients = new ArrayList<>(options.sessions);
+        List<CompletableFuture<StompSession>> connects = new ArrayList<>(options.sessions);
+        long pauseNanos = TimeUnit.SECONDS.toNanos(1) / options.connectRate;
+        long next = System.nanoTime();
+        for (int i = 0; i < options.sessions; i++) {
+            List<String> topics = options.topicsFor(i);
+            SimulatedClient client = new SimulatedClient(topics, stats, objectMapper);
+            clients.add(client);
+            WebSocketStompClient stompClient = topics.contains(LoadTestOptions.ALL_PRICES_TOPIC) ? firehoseClient : symbolClient;
+            connects.add(stompClient.connectAsync(options.connectUrl(), client).whenComplete((session, error) -> {
+                if (error != null && stats.connectFailures.incrementAndGet() == 1) {
+                    System.out.println("First connect failure: " + rootCause(error));
+                }
+            }));
+            next += pauseNanos;
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, next - System.nanoTime()));
+        }
+        try {
+            CompletableFuture.allOf(connects.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // Failures are counted per session
+        }
+
+        System.out.printf("Ramp-up done: %d connected, %d failed; warming up for %ds%n",
+                stats.connected.get(), stats.connectFailures.get(), options.warmup.toSeconds());
+        TimeUnit.MILLISECONDS.sleep(options.warmup.toMillis());
+        long droppedBefore = stats.dropped.sum();
+        long updatesBefore = stats.updates.sum();
+        int lostBefore = stats.lost.get();
+        stats.startMeasuring();
+        long started = System.nanoTime();
+        TimeUnit.MILLISECONDS.sleep(options.duration.toMillis());
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        reporter.shutdownNow();
+        stats.takeInterval();
+        long updates = stats.updates.sum() - updatesBefore;
+        System.out.println();
+        System.out.printf("Measured %.0fs with %d sessions (%d lost during measurement, %d in total)%n",
+                seconds, stats.connected.get(), stats.lost.get() - lostBefore, stats.lost.get());
+        System.out.printf("  updates received: %d (%.0f/s), dropped: %d, stale: %d%n",
+                updates, updates / seconds, stats.dropped.sum() - droppedBefore, stats.stale.sum());
+        System.out.printf("  tick-to-client latency: %s%n", LoadTestStats.describe(stats.total()));
+
+        clients.forEach(SimulatedClient::disconnect);
+        symbolClient.stop();
+        firehoseClient.stop();
+    }
+
+    private WebSocketStompClient stompClient(LoadTestOptions options, int maxFrameSize) {
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(maxFrameSize);
+        container.setDefaultMaxBinaryMessageBufferSize(maxFrameSize);
+        WebSocketClient webSocketClient = new StandardWebSocketClient(container);
+        if (options.sockJs) {
+            webSocketClient = new SockJsClient(List.of(new WebSocketTransport(webSocketClient)));
+        }
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(webSocketClient);
+        stompClient.setInboundMessageSizeLimit(maxFrameSize);
+        return stompClient;
+    }
+
+    private static String rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName() + (cause.getMessage() != null ? ": " + cause.getMessage() : "");
+    }
+
+    private void report(Duration interval) {
+        Histogram latency = stats.takeInterval();
+        long updates = stats.updates.sum();
+        long dropped = stats.dropped.sum();
+        System.out.printf("sessions=%d lost=%d updates/s=%.0f dropped=%d latency %s%n",
+                stats.connected.get() - stats.lost.get(),
+                stats.lost.get(),
+                (updates - lastUpdates) / (double) interval.toSeconds(),
+                dropped - lastDropped,
+                LoadTestStats.describe(latency));
+        lastUpdates = updates;
+        lastDropped = dropped;
+    }
+}
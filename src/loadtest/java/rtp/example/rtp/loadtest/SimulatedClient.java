@@ -0,0 +1,139 @@
+package rtp.example.rtp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One simulated trading client: subscribes to its price topics and checks every update it receives.
+ * <p>
+ * Latency is the time from the update's timestamp, set when the tick was ingested, to its arrival here, so
+ * the load test must run on the same host as the app (or with synchronized clocks and the same time zone).
+ * Snapshots sent on subscribe carry an old timestamp and only set the starting sequence. A jump in a
+ * symbol's sequence means the server dropped updates for this client.
+ */
+class SimulatedClient extends StompSessionHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulatedClient.class);
+
+    private final List<String> topics;
+    private final LoadTestStats stats;
+    private final ObjectMapper objectMapper;
+    private final ZoneId serverZone = ZoneId.systemDefault();
+
+    // Last sequence per subscription and symbol; frames for one session arrive one at a time
+    private final Map<String, Long> lastSequence = new HashMap<>();
+    private volatile StompSession session;
+    private volatile boolean closing;
+
+    SimulatedClient(List<String> topics, LoadTestStats stats, ObjectMapper objectMapper) {
+        this.topics = topics;
+        this.stats = stats;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        stats.connected.incrementAndGet();
+        for (String topic : topics) {
+            session.subscribe(topic, this);
+        }
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+        return byte[].class;
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+        if (headers.getSubscription() == null) {
+            // ERROR frame sent to the session itself
+            if (!closing) {
+                logger.warn("STOMP error: {}", headers.getFirst("message"));
+            }
+            return;
+        }
+        Instant received = Instant.now();
+        stats.frames.increment();
+        boolean snapshot = "true".equals(headers.getFirst("snapshot"));
+        try {
+            JsonNode body = objectMapper.readTree((byte[]) payload);
+            if (body.isArray()) {
+                for (JsonNode update : body) {
+                    onUpdate(headers.getSubscription(), update, snapshot, received);
+                }
+            } else {
+                onUpdate(headers.getSubscription(), body, snapshot, received);
+            }
+        } catch (IOException e) {
+            logger.warn("Unreadable price message on {}: {}", headers.getDestination(), e.getMessage());
+        }
+    }
+
+    private synchronized void onUpdate(String subscription, JsonNode update, boolean snapshot, Instant received) {
+        String key = subscription + ' ' + update.path("symbol").asText();
+        long sequence = update.path("sequence").asLong();
+        Long last = lastSequence.get(key);
+
+        if (snapshot) {
+            stats.snapshots.increment();
+            if (last == null || sequence > last) {
+                lastSequence.put(key, sequence);
+            }
+            return;
+        }
+
+        stats.updates.increment();
+        if (last != null && sequence <= last) {
+            stats.stale.increment();
+            return;
+        }
+        if (last != null && sequence > last + 1) {
+            stats.dropped.add(sequence - last - 1);
+        }
+        lastSequence.put(key, sequence);
+
+        Instant ingested = LocalDateTime.parse(update.path("timestamp").asText()).atZone(serverZone).toInstant();
+        stats.recordLatency(ChronoUnit.MICROS.between(ingested, received));
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                byte[] payload, Throwable exception) {
+        logger.warn("Error handling {} frame: {}", command, exception.getMessage());
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        // Connect failures are counted by the caller; this is a live session the server dropped
+        if (this.session != null && !closing) {
+            stats.lost.incrementAndGet();
+            logger.debug("Session lost: {}", exception.getMessage());
+        }
+    }
+
+    void disconnect() {
+        closing = true;
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+}
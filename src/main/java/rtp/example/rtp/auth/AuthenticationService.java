@@ -1,11 +1,14 @@
 package rtp.example.rtp.auth;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import rtp.example.rtp.auth.jwt.JwtService;
+import rtp.example.rtp.auth.jwt.TokenDenylist;
 import rtp.example.rtp.user.User;
 import rtp.example.rtp.user.UserRepository;
 
@@ -18,16 +21,19 @@ public class AuthenticationService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final ApplicationEventPublisher eventPublisher;
+    private final TokenDenylist tokenDenylist;
 
     public AuthenticationService(UserRepository userRepository,
                                  PasswordEncoder passwordEncoder,
                                  JwtService jwtService,
-                                 AuthenticationManager authenticationManager, ApplicationEventPublisher eventPublisher) {
+                                 AuthenticationManager authenticationManager, ApplicationEventPublisher eventPublisher,
+                                 TokenDenylist tokenDenylist) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
         this.eventPublisher = eventPublisher;
+        this.tokenDenylist = tokenDenylist;
     }
 
     public AuthenticationResponse register(RegisterRequest request){
@@ -76,4 +82,19 @@ public class AuthenticationService {
                 .accessToken(jwtToken)
                 .build();
     }
+
+    // Tokens are not stored server-side, so logging out revokes the presented token until it expires
+    public void logout(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new IllegalArgumentException("Missing bearer token");
+        }
+        String token = authHeader.substring(7);
+        Claims claims;
+        try {
+            claims = jwtService.parse(token);
+        } catch (JwtException e) {
+            throw new IllegalArgumentException("Invalid token");
+        }
+        tokenDenylist.revoke(token, claims);
+    }
 }
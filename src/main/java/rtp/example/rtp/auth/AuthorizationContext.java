@@ -0,0 +1,86 @@
+package rtp.example.rtp.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import rtp.example.rtp.portfolio.PortfolioRepository;
+import rtp.example.rtp.user.User;
+import rtp.example.rtp.user.UserRepository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The current user's id and the ids of the portfolios they own, looked up once per authentication.
+ * <p>
+ * The JWT filter authenticates every request afresh and background jobs authenticate once per job, so
+ * keeping the lookup with the authentication object resolves it once per request or job; execution lanes
+ * carry the same authentication to their threads. Entries are dropped once the authentication is garbage.
+ */
+@Component
+public class AuthorizationContext {
+
+    private final UserRepository userRepository;
+    private final PortfolioRepository portfolioRepository;
+    // Weak keys compare by identity, so two requests by the same user never share an entry
+    private final Cache<Authentication, Access> resolved = Caffeine.newBuilder().weakKeys().build();
+
+    public AuthorizationContext(UserRepository userRepository, PortfolioRepository portfolioRepository) {
+        this.userRepository = userRepository;
+        this.portfolioRepository = portfolioRepository;
+    }
+
+    public Long currentUserId() {
+        return current().userId;
+    }
+
+    public boolean ownsPortfolio(Long portfolioId) {
+        return current().portfolioIds.contains(portfolioId);
+    }
+
+    public Set<Long> ownedPortfolioIds() {
+        return Set.copyOf(current().portfolioIds);
+    }
+
+    // Keep the cached ownership in line with portfolios created or deleted during the request
+    public void portfolioCreated(Long portfolioId) {
+        current().portfolioIds.add(portfolioId);
+    }
+
+    public void portfolioDeleted(Long portfolioId) {
+        current().portfolioIds.remove(portfolioId);
+    }
+
+    private Access current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new IllegalStateException("No authenticated user");
+        }
+        return resolved.get(authentication, this::resolve);
+    }
+
+    private Access resolve(Authentication authentication) {
+        // Authenticated requests and jobs carry the user entity; anything else is looked up by name
+        Long userId = authentication.getPrincipal() instanceof User user
+                ? user.getId()
+                : userRepository.findByUsername(authentication.getName())
+                        .orElseThrow(() -> new EntityNotFoundException("User not found"))
+                        .getId();
+        Set<Long> portfolioIds = ConcurrentHashMap.newKeySet();
+        portfolioIds.addAll(portfolioRepository.findIdsByUserId(userId));
+        return new Access(userId, portfolioIds);
+    }
+
+    private static class Access {
+        private final Long userId;
+        private final Set<Long> portfolioIds;
+
+        Access(Long userId, Set<Long> portfolioIds) {
+            this.userId = userId;
+            this.portfolioIds = portfolioIds;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package rtp.example.rtp.auth.jwt;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked access tokens, held in memory until they would have expired anyway.
+ * <p>
+ * Single tokens are revoked by id (logout); all tokens of a user issued up to a point are revoked by user id
+ * (account deletion). Tokens from before token ids were issued are revoked by their full text instead.
+ */
+@Component
+public class TokenDenylist {
+
+    // Token id (or text) -> its expiry in epoch millis
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // User id -> [tokens issued at or before this second are revoked, entry expiry in epoch millis]
+    private final Map<Long, long[]> revokedUsers = new ConcurrentHashMap<>();
+    private final long tokenLifetimeMillis;
+
+    public TokenDenylist(@Value("${jwt.expiration:86400000}") long tokenLifetimeMillis) {
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
+    public void revoke(String token, Claims claims) {
+        revokedTokens.put(keyOf(token, claims), claims.getExpiration().getTime());
+    }
+
+    // Revoke every token the user holds now; tokens issued later are unaffected. Tokens without a user id
+    // claim are not covered: they stop working once the user is deleted, as their user can no longer be loaded
+    public void revokeUser(Long userId) {
+        long now = System.currentTimeMillis();
+        revokedUsers.put(userId, new long[]{now / 1000, now + tokenLifetimeMillis});
+    }
+
+    public boolean isRevoked(String token, Claims claims) {
+        if (!revokedTokens.isEmpty() && revokedTokens.containsKey(keyOf(token, claims))) {
+            return true;
+        }
+        if (revokedUsers.isEmpty()) {
+            return false;
+        }
+        Long userId = claims.get(JwtService.USER_ID_CLAIM, Long.class);
+        long[] revoked = userId != null ? revokedUsers.get(userId) : null;
+        Date issuedAt = claims.getIssuedAt();
+        return revoked != null && (issuedAt == null || issuedAt.getTime() / 1000 <= revoked[0]);
+    }
+
+    // Expired tokens already fail parsing, so their entries can go
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < now);
+        revokedUsers.values().removeIf(revoked -> revoked[1] < now);
+    }
+
+    private static String keyOf(String token, Claims claims) {
+        return claims.getId() != null ? claims.getId() : token;
+    }
+}
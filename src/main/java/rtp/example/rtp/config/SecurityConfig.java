@@ -2,6 +2,8 @@ package rtp.example.rtp.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -30,10 +32,13 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final UserDetailsService userDetailsService;
+    private final Environment environment;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, UserDetailsService userDetailsService){
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, UserDetailsService userDetailsService,
+                          Environment environment){
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.userDetailsService = userDetailsService;
+        this.environment = environment;
     }
 
     @Bean
@@ -46,15 +51,19 @@ public class SecurityConfig {
                                 csp.policyDirectives("script-src 'self' 'unsafe-eval'; object-src 'none';")
                         )
                 )
-                .authorizeHttpRequests(req ->
+                .authorizeHttpRequests(req -> {
                         req.requestMatchers(
                                         "/api/v1/auth/**",
                                         "/auth/**",  // Added this to support both paths
                                         "/api/v1/trading/**",
                                         "/ws-trading/**"
-                                ).permitAll()
-                                .anyRequest().authenticated()
-                )
+                                ).permitAll();
+                        // The local trade stream stand-in only exists under its profile; elsewhere the path stays closed
+                        if (environment.acceptsProfiles(Profiles.of("stream-stand-in"))) {
+                            req.requestMatchers("/stand-in/**").permitAll();
+                        }
+                        req.anyRequest().authenticated();
+                })
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,191 @@
+package rtp.example.rtp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Outbound frame queue for one WebSocket session, drained by a sender thread while it has frames queued.
+ * <p>
+ * {@link #sendMessage} only queues the frame, so a slow client never holds up the broker's outbound threads.
+ * When the queued bytes pass the buffer limit, older per-symbol price frames are dropped in favour of the
+ * newest one for the same subscription; if the queue is still too large, or a single send has been stuck for
+ * longer than the time limit, the session is closed and the client reconnects for a fresh snapshot. A stalled
+ * send is caught on the next frame for the session, or by the owner's watchdog if no further frame comes.
+ */
+class SessionSendQueue extends WebSocketSessionDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionSendQueue.class);
+
+    private static final String PRICE_TOPIC_PREFIX = "/topic/prices/";
+    // Headers are near the start of a frame; no need to look further
+    private static final int HEADER_SCAN_LIMIT = 512;
+
+    private final WebSocketSendQueues owner;
+    private final Deque<QueuedFrame> queue = new ArrayDeque<>();
+    private int bufferedBytes;
+    private boolean draining;
+    private volatile long sendStartedNanos;
+    private volatile boolean closed;
+
+    SessionSendQueue(WebSocketSession delegate, WebSocketSendQueues owner) {
+        super(delegate);
+        this.owner = owner;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (closed) {
+            return;
+        }
+        if (isSendStalled(owner.getSendTimeLimitNanos())) {
+            owner.closeSlow(this, "send-time");
+            return;
+        }
+
+        boolean startDrain = false;
+        boolean overLimit;
+        synchronized (this) {
+            queue.addLast(new QueuedFrame(message, conflationKey(message)));
+            bufferedBytes += message.getPayloadLength();
+            if (bufferedBytes > owner.getBufferSizeLimit()) {
+                conflate();
+            }
+            // A single frame may be larger than the limit (e.g. a full snapshot); it is the backlog that counts
+            overLimit = bufferedBytes > owner.getBufferSizeLimit() && queue.size() > 1;
+            if (!overLimit && !draining) {
+                draining = true;
+                startDrain = true;
+            }
+            owner.recordDepth(queue.size());
+        }
+
+        if (overLimit) {
+            owner.closeSlow(this, "send-buffer");
+        } else if (startDrain) {
+            owner.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            QueuedFrame next;
+            synchronized (this) {
+                next = closed ? null : queue.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+                bufferedBytes -= next.size;
+            }
+            sendStartedNanos = System.nanoTime();
+            try {
+                getDelegate().sendMessage(next.message);
+            } catch (Exception e) {
+                logger.debug("Send to WebSocket session {} failed: {}", getId(), e.getMessage());
+                if (getDelegate().isOpen()) {
+                    owner.closeSlow(this, "send-error");
+                } else {
+                    // Client went away mid-send; the close callback cleans up
+                    markClosed();
+                }
+            } finally {
+                sendStartedNanos = 0;
+            }
+        }
+    }
+
+    // Keep only the newest queued price frame per subscription and symbol
+    private void conflate() {
+        Set<String> seen = new HashSet<>();
+        Iterator<QueuedFrame> newestFirst = queue.descendingIterator();
+        int removed = 0;
+        while (newestFirst.hasNext()) {
+            QueuedFrame frame = newestFirst.next();
+            if (frame.conflationKey != null && !seen.add(frame.conflationKey)) {
+                newestFirst.remove();
+                bufferedBytes -= frame.size;
+                removed++;
+            }
+        }
+        owner.recordConflated(removed);
+    }
+
+    // True while a single send has been in progress for longer than the limit
+    boolean isSendStalled(long limitNanos) {
+        long started = sendStartedNanos;
+        return started != 0 && System.nanoTime() - started > limitNanos;
+    }
+
+    void markClosed() {
+        closed = true;
+        synchronized (this) {
+            queue.clear();
+            bufferedBytes = 0;
+        }
+    }
+
+    synchronized int getQueuedFrames() {
+        return queue.size();
+    }
+
+    // Subscription + destination of a per-symbol price MESSAGE frame; null for anything that must not be dropped
+    private static String conflationKey(WebSocketMessage<?> message) {
+        String head;
+        if (message instanceof TextMessage text) {
+            String payload = text.getPayload();
+            head = payload.substring(0, Math.min(payload.length(), HEADER_SCAN_LIMIT));
+        } else if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload().duplicate();
+            byte[] bytes = new byte[Math.min(payload.remaining(), HEADER_SCAN_LIMIT)];
+            payload.get(bytes);
+            head = new String(bytes, StandardCharsets.ISO_8859_1);
+        } else {
+            return null;
+        }
+        if (!head.startsWith("MESSAGE\n")) {
+            return null;
+        }
+
+        String destination = null;
+        String subscription = null;
+        int end = head.indexOf("\n\n");
+        for (String line : head.substring(0, end < 0 ? head.length() : end).split("\n")) {
+            if (line.startsWith("destination:")) {
+                destination = line.substring("destination:".length());
+            } else if (line.startsWith("subscription:")) {
+                subscription = line.substring("subscription:".length());
+            } else if (line.startsWith("snapshot:")) {
+                return null;
+            }
+        }
+        if (end < 0 || destination == null || subscription == null || !destination.startsWith(PRICE_TOPIC_PREFIX)) {
+            return null;
+        }
+        return subscription + ' ' + destination;
+    }
+
+    private static class QueuedFrame {
+        private final WebSocketMessage<?> message;
+        private final String conflationKey;
+        private final int size;
+
+        QueuedFrame(WebSocketMessage<?> message, String conflationKey) {
+            this.message = message;
+            this.conflationKey = conflationKey;
+            this.size = message.getPayloadLength();
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package rtp.example.rtp.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import rtp.example.rtp.trading.RealTimeStockDataService;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @EnableCaching
@@ -15,13 +26,42 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling
 public class StockDataConfig {
 
+    public static final String STOCK_PRICE_CACHE = "stock-prices";
+
+    // JDK HttpClient keeps a pool of keep-alive connections to the stock API; every request has a timeout
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${stock.api.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${stock.api.read-timeout:5s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    // Virtual threads for blocking price fetches, kept off the ForkJoin common pool
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService marketDataPollExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("price-poll-", 0).factory());
     }
 
+    // Quote cache: entries expire after the TTL, hot symbols are reloaded in the background
+    // once older than refresh-after, so readers keep getting the cached price meanwhile.
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("stock-prices");
+    public CacheManager cacheManager(ObjectProvider<RealTimeStockDataService> stockDataService,
+                                     @Qualifier("marketDataPollExecutor") ExecutorService refreshExecutor,
+                                     @Value("${stock.price-cache.ttl:30s}") Duration ttl,
+                                     @Value("${stock.price-cache.refresh-after:20s}") Duration refreshAfter,
+                                     @Value("${stock.price-cache.max-size:2000}") long maxSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(STOCK_PRICE_CACHE, Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .maximumSize(maxSize)
+                .recordStats()
+                .executor(refreshExecutor)
+                .build(symbol -> stockDataService.getObject().loadCurrentStockPrice((String) symbol)));
+        return cacheManager;
     }
-}
\ No newline at end of file
+}
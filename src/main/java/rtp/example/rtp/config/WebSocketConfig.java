@@ -1,20 +1,52 @@
 package rtp.example.rtp.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import rtp.example.rtp.trading.PriceStreamFormats;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final PriceStreamFormats priceStreamFormats;
+    private final WebSocketSendQueues sendQueues;
+
+    @Value("${websocket.inbound.pool-size:8}")
+    private int inboundPoolSize;
+
+    @Value("${websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.pool-size:8}")
+    private int outboundPoolSize;
+
+    @Value("${websocket.send.time-limit:5s}")
+    private Duration sendTimeLimit;
+
+    @Value("${websocket.message-size-limit:64KB}")
+    private DataSize messageSizeLimit;
+
+    public WebSocketConfig(PriceStreamFormats priceStreamFormats, WebSocketSendQueues sendQueues) {
+        this.priceStreamFormats = priceStreamFormats;
+        this.sendQueues = sendQueues;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue"); // allows broadcast + private queues
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user"); // needed for convertAndSendToUser
+        // Keep each session's messages in publish order across outbound threads (price sequence numbers rely on it)
+        config.setPreservePublishOrder(true);
     }
 
     @Override
@@ -22,5 +54,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws-trading")
                 .setAllowedOriginPatterns("https://trading-platform-frontend-wg73.onrender.com")
                 .withSockJS();
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    // Sends go through a per-session queue (WebSocketSendQueues), so the limits below are only a backstop;
+    // price message format is negotiated per connection (price-format header on CONNECT)
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit((int) sendTimeLimit.toMillis())
+                .setSendBufferSizeLimit(sendQueues.getBufferSizeLimit())
+                .setMessageSizeLimit((int) messageSizeLimit.toBytes())
+                .addDecoratorFactory(priceStreamFormats.transportMarker())
+                .addDecoratorFactory(sendQueues.decoratorFactory());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundPoolSize)
+                .maxPoolSize(inboundPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+        registration.interceptors(priceStreamFormats.inbound());
+    }
+
+    // Outbound threads only hand frames to session queues, so a small pool serves many clients
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize);
+        registration.interceptors(priceStreamFormats.outbound());
     }
 }
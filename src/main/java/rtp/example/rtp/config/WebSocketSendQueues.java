@@ -0,0 +1,158 @@
+package rtp.example.rtp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every WebSocket session its own {@link SessionSendQueue} and keeps the metrics for them:
+ * queued frames per session, price frames conflated for slow clients and sessions closed for falling behind.
+ * <p>
+ * Sessions are drained by a fixed pool of sender threads. A watchdog closes any session whose send has been
+ * stuck for longer than the time limit, which fails the blocked send and gives its thread back to the pool.
+ */
+@Component
+public class WebSocketSendQueues {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSendQueues.class);
+
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitNanos;
+    // Platform threads: a blocking send can pin a virtual thread's carrier and stall every other session.
+    // A session has at most one drain queued, so the pool's task queue is bounded by the open sessions.
+    private final ExecutorService senders;
+    // Closing may block on the stalled socket too; kept apart so closes never wait behind stuck sends
+    private final ExecutorService closers = Executors.newFixedThreadPool(2, Thread.ofPlatform().name("ws-close-", 0).daemon().factory());
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ws-send-watchdog").daemon().factory());
+    private final Map<String, SessionSendQueue> queues = new ConcurrentHashMap<>();
+
+    private final DistributionSummary queueDepth;
+    private final Counter conflatedCounter;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketSendQueues(MeterRegistry meterRegistry,
+                               @Value("${websocket.send.buffer-size-limit:256KB}") DataSize bufferSizeLimit,
+                               @Value("${websocket.send.time-limit:5s}") Duration sendTimeLimit,
+                               @Value("${websocket.send.threads:8}") int senderThreads) {
+        this.bufferSizeLimit = (int) bufferSizeLimit.toBytes();
+        this.sendTimeLimitNanos = sendTimeLimit.toNanos();
+        this.senders = Executors.newFixedThreadPool(senderThreads, Thread.ofPlatform().name("ws-send-", 0).daemon().factory());
+        // Check a few times per limit, so a stalled session is closed soon after it passes the limit
+        long checkIntervalMillis = Math.max(100, sendTimeLimit.toMillis() / 4);
+        watchdog.scheduleWithFixedDelay(this::closeStalled, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        this.meterRegistry = meterRegistry;
+        this.queueDepth = DistributionSummary.builder("websocket.session.send-queue")
+                .description("Frames waiting in a session's send queue, sampled on every send")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("websocket.session.frames")
+                .description("Queued price frames replaced by a newer one for a slow client")
+                .tag("outcome", "conflated")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.send-queue.max", queues,
+                        all -> all.values().stream().mapToInt(SessionSendQueue::getQueuedFrames).max().orElse(0))
+                .description("Longest send queue of any session, in frames")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.send-queue.total", queues,
+                        all -> all.values().stream().mapToInt(SessionSendQueue::getQueuedFrames).sum())
+                .description("Frames queued across all sessions")
+                .register(meterRegistry);
+    }
+
+    public int getBufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    long getSendTimeLimitNanos() {
+        return sendTimeLimitNanos;
+    }
+
+    public WebSocketHandlerDecoratorFactory decoratorFactory() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionSendQueue queue = new SessionSendQueue(session, WebSocketSendQueues.this);
+                queues.put(session.getId(), queue);
+                super.afterConnectionEstablished(queue);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                SessionSendQueue queue = queues.remove(session.getId());
+                if (queue != null) {
+                    queue.markClosed();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    void execute(Runnable task) {
+        senders.execute(task);
+    }
+
+    void recordDepth(int frames) {
+        queueDepth.record(frames);
+    }
+
+    void recordConflated(int frames) {
+        conflatedCounter.increment(frames);
+    }
+
+    private void closeStalled() {
+        try {
+            for (SessionSendQueue queue : queues.values()) {
+                if (queue.isSendStalled(sendTimeLimitNanos)) {
+                    closeSlow(queue, "send-time");
+                }
+            }
+        } catch (Exception e) {
+            // An exception would cancel the schedule
+            logger.error("WebSocket send watchdog failed", e);
+        }
+    }
+
+    // Drop a session that cannot keep up; closing may block on the stalled socket, so it runs off-thread
+    void closeSlow(SessionSendQueue queue, String reason) {
+        queue.markClosed();
+        if (queues.remove(queue.getId()) == null) {
+            return;
+        }
+        meterRegistry.counter("websocket.sessions.closed", "reason", reason).increment();
+        logger.warn("Closing WebSocket session {} ({}): client is not keeping up", queue.getId(), reason);
+        closers.execute(() -> {
+            try {
+                queue.getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                logger.debug("Failed to close WebSocket session {}", queue.getId(), e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        senders.shutdownNow();
+        closers.shutdownNow();
+    }
+}
@@ -0,0 +1,40 @@
+package rtp.example.rtp.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One OHLCV bar as returned by the candle API
+public class Candle {
+    private final String symbol;
+    private final String interval;
+    private final LocalDateTime openTime;
+    private final BigDecimal open;
+    private final BigDecimal high;
+    private final BigDecimal low;
+    private final BigDecimal close;
+    private final long volume;
+    private final int ticks;
+
+    public Candle(String symbol, String interval, LocalDateTime openTime, BigDecimal open, BigDecimal high,
+                  BigDecimal low, BigDecimal close, long volume, int ticks) {
+        this.symbol = symbol;
+        this.interval = interval;
+        this.openTime = openTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.ticks = ticks;
+    }
+
+    public String getSymbol() { return symbol; }
+    public String getInterval() { return interval; }
+    public LocalDateTime getOpenTime() { return openTime; }
+    public BigDecimal getOpen() { return open; }
+    public BigDecimal getHigh() { return high; }
+    public BigDecimal getLow() { return low; }
+    public BigDecimal getClose() { return close; }
+    public long getVolume() { return volume; }
+    public int getTicks() { return ticks; }
+}
@@ -0,0 +1,235 @@
+package rtp.example.rtp.data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OHLCV bars per symbol at 1m, 5m, 1h and 1d, built from the tick stream as it is ingested.
+ * <p>
+ * Each tick touches the newest bar of every interval, so updates are O(1). Bars live in bounded
+ * ring buffers of primitives (prices in 1/10000 units); the oldest bar is overwritten once an interval
+ * reaches its configured history length. Volume is the sum of tick volumes within the bar.
+ */
+@Component
+public class CandleAggregator {
+
+    private static final int PRICE_SCALE = 4;
+    // Ticks up to this many bars late still update their bar; older ones are ignored
+    private static final int MAX_LATE_BARS = 4;
+
+    private final Map<CandleInterval, Integer> maxBars = new EnumMap<>(CandleInterval.class);
+    private final ConcurrentHashMap<String, SymbolCandles> candles = new ConcurrentHashMap<>();
+
+    public CandleAggregator(@Value("${market-data.candles.max-bars.1m:720}") int oneMinuteBars,
+                            @Value("${market-data.candles.max-bars.5m:576}") int fiveMinuteBars,
+                            @Value("${market-data.candles.max-bars.1h:336}") int oneHourBars,
+                            @Value("${market-data.candles.max-bars.1d:365}") int oneDayBars) {
+        maxBars.put(CandleInterval.ONE_MINUTE, oneMinuteBars);
+        maxBars.put(CandleInterval.FIVE_MINUTES, fiveMinuteBars);
+        maxBars.put(CandleInterval.ONE_HOUR, oneHourBars);
+        maxBars.put(CandleInterval.ONE_DAY, oneDayBars);
+    }
+
+    public void onTick(StockPrice tick) {
+        if (tick.getPrice() == null || tick.getTimestamp() == null) {
+            return;
+        }
+        long price = tick.getPrice().setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValue();
+        long volume = tick.getVolume() != null ? tick.getVolume() : 0L;
+        long epochMillis = tick.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        candles.computeIfAbsent(tick.getSymbol().toUpperCase(), symbol -> new SymbolCandles())
+                .add(epochMillis, price, volume);
+    }
+
+    // Up to limit most recent bars, oldest first; the last one may still be forming
+    public List<Candle> getCandles(String symbol, CandleInterval interval, LocalDateTime from, int limit) {
+        String key = symbol.toUpperCase();
+        SymbolCandles symbolCandles = candles.get(key);
+        if (symbolCandles == null || limit <= 0) {
+            return List.of();
+        }
+        long fromSecond = from != null ? from.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        return symbolCandles.snapshot(key, interval, fromSecond, limit);
+    }
+
+    public int getMaxBars(CandleInterval interval) {
+        return maxBars.get(interval);
+    }
+
+    private class SymbolCandles {
+        private final Map<CandleInterval, BarSeries> series = new EnumMap<>(CandleInterval.class);
+
+        SymbolCandles() {
+            for (CandleInterval interval : CandleInterval.values()) {
+                series.put(interval, new BarSeries(interval, maxBars.get(interval)));
+            }
+        }
+
+        synchronized void add(long epochMillis, long price, long volume) {
+            for (BarSeries bars : series.values()) {
+                bars.add(epochMillis, price, volume);
+            }
+        }
+
+        synchronized List<Candle> snapshot(String symbol, CandleInterval interval, long fromSecond, int limit) {
+            return series.get(interval).snapshot(symbol, fromSecond, limit);
+        }
+    }
+
+    // Ring buffer of bars for one symbol and interval, grown on demand up to its maximum length
+    private static class BarSeries {
+        private final CandleInterval interval;
+        private final int maxLength;
+
+        private long[] openTime = new long[0];   // bucket start, local epoch seconds
+        private long[] firstMillis = new long[0];
+        private long[] lastMillis = new long[0];
+        private long[] open = new long[0];
+        private long[] high = new long[0];
+        private long[] low = new long[0];
+        private long[] close = new long[0];
+        private long[] volume = new long[0];
+        private int[] ticks = new int[0];
+        private int head; // index of the oldest bar
+        private int size;
+
+        BarSeries(CandleInterval interval, int maxLength) {
+            this.interval = interval;
+            this.maxLength = Math.max(1, maxLength);
+        }
+
+        void add(long epochMillis, long price, long tickVolume) {
+            long bucket = interval.bucketStart(Math.floorDiv(epochMillis, 1000));
+            if (size == 0 || bucket > openTime[index(size - 1)]) {
+                append(bucket, epochMillis, price, tickVolume);
+                return;
+            }
+            // Same bucket as the newest bar, or a late tick for one of the last few
+            for (int back = 1; back <= Math.min(size, MAX_LATE_BARS); back++) {
+                int i = index(size - back);
+                if (openTime[i] == bucket) {
+                    update(i, epochMillis, price, tickVolume);
+                    return;
+                }
+                if (openTime[i] < bucket) {
+                    return;
+                }
+            }
+        }
+
+        private void append(long bucket, long epochMillis, long price, long tickVolume) {
+            int i;
+            if (size < maxLength) {
+                if (size == openTime.length) {
+                    grow();
+                }
+                i = index(size);
+                size++;
+            } else {
+                // Full: the slot of the oldest bar becomes the newest
+                i = head;
+                head = (head + 1) % openTime.length;
+            }
+            openTime[i] = bucket;
+            firstMillis[i] = epochMillis;
+            lastMillis[i] = epochMillis;
+            open[i] = price;
+            high[i] = price;
+            low[i] = price;
+            close[i] = price;
+            volume[i] = tickVolume;
+            ticks[i] = 1;
+        }
+
+        private void update(int i, long epochMillis, long price, long tickVolume) {
+            if (price > high[i]) {
+                high[i] = price;
+            }
+            if (price < low[i]) {
+                low[i] = price;
+            }
+            if (epochMillis >= lastMillis[i]) {
+                lastMillis[i] = epochMillis;
+                close[i] = price;
+            }
+            if (epochMillis < firstMillis[i]) {
+                firstMillis[i] = epochMillis;
+                open[i] = price;
+            }
+            volume[i] += tickVolume;
+            ticks[i]++;
+        }
+
+        // Double the arrays (up to maxLength), unrolling the ring so the oldest bar is at index 0
+        private void grow() {
+            int capacity = Math.min(maxLength, Math.max(8, openTime.length * 2));
+            int[] order = new int[size];
+            for (int n = 0; n < size; n++) {
+                order[n] = index(n);
+            }
+            openTime = unroll(openTime, order, capacity);
+            firstMillis = unroll(firstMillis, order, capacity);
+            lastMillis = unroll(lastMillis, order, capacity);
+            open = unroll(open, order, capacity);
+            high = unroll(high, order, capacity);
+            low = unroll(low, order, capacity);
+            close = unroll(close, order, capacity);
+            volume = unroll(volume, order, capacity);
+            int[] grownTicks = new int[capacity];
+            for (int n = 0; n < order.length; n++) {
+                grownTicks[n] = ticks[order[n]];
+            }
+            ticks = grownTicks;
+            head = 0;
+        }
+
+        private static long[] unroll(long[] values, int[] order, int capacity) {
+            long[] grown = new long[capacity];
+            for (int n = 0; n < order.length; n++) {
+                grown[n] = values[order[n]];
+            }
+            return grown;
+        }
+
+        private int index(int n) {
+            return (head + n) % openTime.length;
+        }
+
+        List<Candle> snapshot(String symbol, long fromSecond, int limit) {
+            int start = Math.max(0, size - limit);
+            List<Candle> result = new ArrayList<>(size - start);
+            for (int n = start; n < size; n++) {
+                int i = index(n);
+                if (openTime[i] < fromSecond) {
+                    continue;
+                }
+                result.add(new Candle(
+                        symbol,
+                        interval.getCode(),
+                        LocalDateTime.ofEpochSecond(openTime[i], 0, ZoneOffset.UTC),
+                        toPrice(open[i]),
+                        toPrice(high[i]),
+                        toPrice(low[i]),
+                        toPrice(close[i]),
+                        volume[i],
+                        ticks[i]));
+            }
+            return result;
+        }
+
+        private static BigDecimal toPrice(long units) {
+            return BigDecimal.valueOf(units, PRICE_SCALE);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package rtp.example.rtp.data;
+
+import java.util.Arrays;
+
+// Bar sizes kept by CandleAggregator; buckets are aligned to wall-clock time (days start at local midnight)
+public enum CandleInterval {
+    ONE_MINUTE("1m", 60),
+    FIVE_MINUTES("5m", 5 * 60),
+    ONE_HOUR("1h", 60 * 60),
+    ONE_DAY("1d", 24 * 60 * 60);
+
+    private final String code;
+    private final long seconds;
+
+    CandleInterval(String code, long seconds) {
+        this.code = code;
+        this.seconds = seconds;
+    }
+
+    public String getCode() { return code; }
+    public long getSeconds() { return seconds; }
+
+    // Start of the bucket containing the given local epoch second
+    public long bucketStart(long epochSecond) {
+        return Math.floorDiv(epochSecond, seconds) * seconds;
+    }
+
+    public static CandleInterval fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(interval -> interval.code.equalsIgnoreCase(code))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unsupported interval: " + code + " (use 1m, 5m, 1h or 1d)"));
+    }
+}
@@ -0,0 +1,203 @@
+package rtp.example.rtp.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming Largest-Triangle-Three-Buckets downsampling of a time-ordered price series.
+ * <p>
+ * The range is split into equal time buckets. A bucket's point is chosen once the following bucket is
+ * complete (its average is the third triangle vertex), so only two buckets are held at a time. Series
+ * that fit within the target size are returned unchanged. Feed points in timestamp order, then call
+ * {@link #finish()}.
+ */
+public class LttbDownsampler {
+
+    private final int threshold;
+    private final long fromMillis;
+    private final double bucketMillis;
+
+    // Raw points until the series is known to need downsampling
+    private List<Point> raw = new ArrayList<>();
+    private final List<Point> output = new ArrayList<>();
+
+    private Point anchor;
+    private Bucket selecting;
+    private Bucket filling;
+    private Point last;
+    private long count;
+
+    public LttbDownsampler(LocalDateTime from, LocalDateTime to, int threshold) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("At least 3 points are required");
+        }
+        this.threshold = threshold;
+        this.fromMillis = toMillis(from);
+        this.bucketMillis = Math.max(1.0, (toMillis(to) - fromMillis) / (double) (threshold - 2));
+    }
+
+    public void add(LocalDateTime timestamp, double price) {
+        add(toMillis(timestamp), price);
+    }
+
+    // Same, with the timestamp as local epoch millis
+    public void add(long epochMillis, double price) {
+        // Times are kept relative to the start of the range so bucket sums stay exact
+        Point point = new Point(epochMillis - fromMillis, price);
+        count++;
+        if (raw != null) {
+            raw.add(point);
+            if (raw.size() > threshold) {
+                List<Point> buffered = raw;
+                raw = null;
+                buffered.forEach(this::accept);
+            }
+            return;
+        }
+        accept(point);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void accept(Point point) {
+        last = point;
+        if (anchor == null) {
+            anchor = point;
+            output.add(point);
+            return;
+        }
+        long index = (long) (point.millis / bucketMillis);
+        if (filling == null) {
+            filling = new Bucket(index);
+        } else if (index != filling.index) {
+            // The filling bucket is complete, so the one before it can pick its point
+            if (selecting != null) {
+                emit(selecting, filling.averageMillis(), filling.averagePrice());
+            }
+            selecting = filling;
+            filling = new Bucket(index);
+        }
+        filling.add(point);
+    }
+
+    public List<HistoryPoint> finish() {
+        if (raw != null) {
+            return toHistory(raw);
+        }
+        // The final point is always kept, so take it out of its bucket
+        filling.removeLast();
+        Bucket tail = filling.isEmpty() ? null : filling;
+        if (selecting != null) {
+            if (tail != null) {
+                emit(selecting, tail.averageMillis(), tail.averagePrice());
+            } else {
+                emit(selecting, last.millis, last.price);
+            }
+        }
+        if (tail != null) {
+            emit(tail, last.millis, last.price);
+        }
+        output.add(last);
+        return toHistory(output);
+    }
+
+    // Keep the point forming the largest triangle with the previous pick and the next bucket's average
+    private void emit(Bucket bucket, double nextMillis, double nextPrice) {
+        Point best = null;
+        double bestArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            double area = Math.abs((anchor.millis - nextMillis) * (bucket.prices[i] - anchor.price)
+                    - (anchor.millis - bucket.millis[i]) * (nextPrice - anchor.price));
+            if (area > bestArea) {
+                bestArea = area;
+                best = new Point(bucket.millis[i], bucket.prices[i]);
+            }
+        }
+        if (best != null) {
+            output.add(best);
+            anchor = best;
+        }
+    }
+
+    private List<HistoryPoint> toHistory(List<Point> points) {
+        List<HistoryPoint> history = new ArrayList<>(points.size());
+        for (Point point : points) {
+            long millis = fromMillis + point.millis;
+            history.add(new HistoryPoint(
+                    LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                            (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC),
+                    BigDecimal.valueOf(point.price)));
+        }
+        return history;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static class Point {
+        private final long millis;
+        private final double price;
+
+        Point(long millis, double price) {
+            this.millis = millis;
+            this.price = price;
+        }
+    }
+
+    // Points of one time bucket, kept as primitives
+    private static class Bucket {
+        private final long index;
+        private long[] millis = new long[16];
+        private double[] prices = new double[16];
+        private int size;
+        private double sumMillis;
+        private double sumPrice;
+
+        Bucket(long index) {
+            this.index = index;
+        }
+
+        void add(Point point) {
+            if (size == millis.length) {
+                millis = Arrays.copyOf(millis, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            millis[size] = point.millis;
+            prices[size] = point.price;
+            size++;
+            sumMillis += point.millis;
+            sumPrice += point.price;
+        }
+
+        void removeLast() {
+            size--;
+            sumMillis -= millis[size];
+            sumPrice -= prices[size];
+        }
+
+        boolean isEmpty() { return size == 0; }
+        double averageMillis() { return sumMillis / size; }
+        double averagePrice() { return sumPrice / size; }
+    }
+
+    // One point of a downsampled series
+    public static class HistoryPoint {
+        private final LocalDateTime timestamp;
+        private final BigDecimal price;
+
+        public HistoryPoint(LocalDateTime timestamp, BigDecimal price) {
+            this.timestamp = timestamp;
+            this.price = price;
+        }
+
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public BigDecimal getPrice() { return price; }
+    }
+}
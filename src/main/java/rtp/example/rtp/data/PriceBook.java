@@ -0,0 +1,44 @@
+package rtp.example.rtp.data;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide book of the latest quote per symbol.
+ * Reads are lock-free map lookups; the ingest path swaps in a new immutable snapshot per tick.
+ * The stock_prices table only keeps history and is never consulted for the current price.
+ */
+@Component
+public class PriceBook {
+
+    private final ConcurrentHashMap<String, PriceSnapshot> latest = new ConcurrentHashMap<>();
+
+    // Atomically install the snapshot unless a newer one is already present; returns the winner
+    public PriceSnapshot update(PriceSnapshot snapshot) {
+        return latest.merge(snapshot.getSymbol(), snapshot,
+                (current, candidate) -> candidate.isNewerThan(current) ? candidate : current);
+    }
+
+    public Optional<PriceSnapshot> get(String symbol) {
+        if (symbol == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(latest.get(symbol.toUpperCase()));
+    }
+
+    public Optional<PriceSnapshot> getFresh(String symbol, Duration maxAge) {
+        return get(symbol).filter(snapshot -> snapshot.isFresh(maxAge));
+    }
+
+    public Map<String, PriceSnapshot> getAll() {
+        return Map.copyOf(latest);
+    }
+
+    public int size() {
+        return latest.size();
+    }
+}
@@ -0,0 +1,183 @@
+package rtp.example.rtp.data;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rtp.example.rtp.data.archive.TickArchive;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Retention for stock_prices, run in the background instead of on startup.
+ * <p>
+ * History is expired in whole days. When stock_prices is a PostgreSQL table partitioned by day
+ * (see db/partition_stock_prices.sql), upcoming daily partitions are created ahead of time and expired
+ * ones are dropped, which frees their space at once. On a plain table each expired day is removed with
+ * one range DELETE on the timestamp index.
+ * <p>
+ * While the tick archive is enabled, days from its watermark on are left alone: they have not been archived
+ * yet, and the archive job removes them from stock_prices once they are.
+ */
+@Component
+public class PriceHistoryRetention {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryRetention.class);
+
+    private static final String TABLE = "stock_prices";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TickArchive tickArchive;
+    private final int retentionDays;
+    private final int partitionsAhead;
+
+    private final Counter rowsReclaimed;
+    private final Counter bucketsReclaimed;
+    private final Timer runTimer;
+
+    public PriceHistoryRetention(JdbcTemplate jdbcTemplate,
+                                 TickArchive tickArchive,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${market-data.retention.days:14}") int retentionDays,
+                                 @Value("${market-data.retention.partitions-ahead:7}") int partitionsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tickArchive = tickArchive;
+        this.retentionDays = retentionDays;
+        this.partitionsAhead = partitionsAhead;
+        this.rowsReclaimed = Counter.builder("stock-prices.retention.rows")
+                .description("Expired price history rows removed (estimated for dropped partitions)")
+                .register(meterRegistry);
+        this.bucketsReclaimed = Counter.builder("stock-prices.retention.buckets")
+                .description("Expired days of price history removed")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("stock-prices.retention.run")
+                .description("Duration of price history retention runs")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${market-data.retention.initial-delay-ms:30000}",
+            fixedDelayString = "${market-data.retention.interval-ms:3600000}")
+    public void scheduledRun() {
+        try {
+            runTimer.record(this::run);
+        } catch (Exception e) {
+            logger.error("Price history retention failed", e);
+        }
+    }
+
+    // Expire every day before the cutoff; returns the number of rows removed
+    public long run() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        if (tickArchive.isEnabled()) {
+            // Nothing archived yet means nothing may be expired
+            LocalDate archivedUntil = tickArchive.getArchivedUntil().orElse(LocalDate.MIN);
+            if (archivedUntil.isBefore(cutoff)) {
+                cutoff = archivedUntil;
+            }
+        }
+        long started = System.currentTimeMillis();
+
+        Result result = isPartitioned() ? dropExpiredPartitions(cutoff) : deleteExpiredDays(cutoff);
+
+        rowsReclaimed.increment(result.rows);
+        bucketsReclaimed.increment(result.buckets);
+        if (result.buckets > 0) {
+            logger.info("Price history retention reclaimed {} rows in {} daily buckets before {} ({} ms)",
+                    result.rows, result.buckets, cutoff, System.currentTimeMillis() - started);
+        } else {
+            logger.debug("Price history retention: nothing before {}", cutoff);
+        }
+        return result.rows;
+    }
+
+    private boolean isPartitioned() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            return false;
+        }
+        List<String> kind = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE relname = ? AND relnamespace = current_schema()::regnamespace",
+                String.class, TABLE);
+        return kind.contains("p");
+    }
+
+    // Partitioned table: create upcoming days, drop expired ones
+    private Result dropExpiredPartitions(LocalDate cutoff) {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS %s%s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                    PARTITION_PREFIX, day.format(PARTITION_SUFFIX), TABLE, day, day.plusDays(1)));
+        }
+
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = ?",
+                String.class, TABLE);
+
+        Result result = new Result();
+        for (String partition : partitions) {
+            LocalDate day = partitionDay(partition);
+            if (day == null || !day.isBefore(cutoff)) {
+                continue;
+            }
+            // Dropping is instant; the planner's row estimate is good enough for reporting
+            Long estimate = jdbcTemplate.queryForObject(
+                    "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE relname = ?", Long.class, partition);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+            result.rows += estimate != null ? estimate : 0;
+            result.buckets++;
+        }
+        return result;
+    }
+
+    private static LocalDate partitionDay(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Plain table: one range DELETE per expired day, oldest first
+    private Result deleteExpiredDays(LocalDate cutoff) {
+        Result result = new Result();
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM " + TABLE, Timestamp.class);
+        if (oldest == null) {
+            return result;
+        }
+        for (LocalDate day = oldest.toLocalDateTime().toLocalDate(); day.isBefore(cutoff); day = day.plusDays(1)) {
+            int deleted = jdbcTemplate.update(
+                    "DELETE FROM " + TABLE + " WHERE timestamp >= ? AND timestamp < ?",
+                    Timestamp.valueOf(day.atStartOfDay()),
+                    Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            if (deleted > 0) {
+                result.rows += deleted;
+                result.buckets++;
+            }
+        }
+        return result;
+    }
+
+    private static class Result {
+        private long rows;
+        private int buckets;
+    }
+}
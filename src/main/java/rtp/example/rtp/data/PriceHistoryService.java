@@ -0,0 +1,93 @@
+package rtp.example.rtp.data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rtp.example.rtp.data.archive.TickArchive;
+import rtp.example.rtp.data.archive.TickFile;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Reads stored ticks for charts, downsampled on the way out of the database
+@Service
+public class PriceHistoryService {
+
+    private static final String RANGE_SQL = "SELECT timestamp, price FROM stock_prices "
+            + "WHERE symbol = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+
+    private static final double PRICE_UNITS = Math.pow(10, TickFile.PRICE_SCALE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TickArchive tickArchive;
+    private final int fetchSize;
+
+    public PriceHistoryService(JdbcTemplate jdbcTemplate,
+                               TickArchive tickArchive,
+                               @Value("${market-data.history.fetch-size:5000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tickArchive = tickArchive;
+        this.fetchSize = fetchSize;
+    }
+
+    // Ticks are streamed through the downsampler - archived days from memory-mapped files, the rest from
+    // stock_prices with a cursor (PostgreSQL only uses the fetch size inside a transaction) - so the whole
+    // range is never held in memory
+    @Transactional(readOnly = true)
+    public DownsampledHistory getHistory(String symbol, LocalDateTime from, LocalDateTime to, int points) {
+        String key = symbol.toUpperCase();
+        LttbDownsampler downsampler = new LttbDownsampler(from, to, points);
+
+        LocalDateTime databaseFrom = from;
+        Optional<LocalDate> archivedUntil = tickArchive.getArchivedUntil();
+        if (archivedUntil.isPresent() && from.isBefore(archivedUntil.get().atStartOfDay())) {
+            LocalDateTime boundary = archivedUntil.get().atStartOfDay();
+            LocalDateTime archiveTo = to.isBefore(boundary) ? to : boundary;
+            tickArchive.scan(key, from, archiveTo, (millis, priceUnits, volume) ->
+                    downsampler.add(millis, priceUnits / PRICE_UNITS));
+            databaseFrom = archiveTo;
+        }
+
+        if (databaseFrom.isBefore(to)) {
+            LocalDateTime start = databaseFrom;
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(RANGE_SQL);
+                ps.setFetchSize(fetchSize);
+                ps.setString(1, key);
+                ps.setTimestamp(2, Timestamp.valueOf(start));
+                ps.setTimestamp(3, Timestamp.valueOf(to));
+                return ps;
+            }, (RowCallbackHandler) rs -> downsampler.add(rs.getTimestamp(1).toLocalDateTime(), rs.getDouble(2)));
+        }
+        return new DownsampledHistory(key, from, to, downsampler.getCount(), downsampler.finish());
+    }
+
+    public static class DownsampledHistory {
+        private final String symbol;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final long sourcePoints;
+        private final List<LttbDownsampler.HistoryPoint> points;
+
+        public DownsampledHistory(String symbol, LocalDateTime from, LocalDateTime to, long sourcePoints,
+                                  List<LttbDownsampler.HistoryPoint> points) {
+            this.symbol = symbol;
+            this.from = from;
+            this.to = to;
+            this.sourcePoints = sourcePoints;
+            this.points = points;
+        }
+
+        public String getSymbol() { return symbol; }
+        public LocalDateTime getFrom() { return from; }
+        public LocalDateTime getTo() { return to; }
+        public long getSourcePoints() { return sourcePoints; }
+        public List<LttbDownsampler.HistoryPoint> getPoints() { return points; }
+    }
+}
@@ -0,0 +1,63 @@
+package rtp.example.rtp.data;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Immutable latest-quote view held by the PriceBook; safe to share between threads
+public final class PriceSnapshot {
+
+    private final String symbol;
+    private final BigDecimal price;
+    private final BigDecimal changeAmount;
+    private final BigDecimal changePercent;
+    private final Long volume;
+    private final LocalDateTime timestamp;
+    private final String source;
+
+    public PriceSnapshot(String symbol, BigDecimal price, BigDecimal changeAmount,
+                         BigDecimal changePercent, Long volume, LocalDateTime timestamp, String source) {
+        this.symbol = symbol;
+        this.price = price;
+        this.changeAmount = changeAmount;
+        this.changePercent = changePercent;
+        this.volume = volume;
+        this.timestamp = timestamp;
+        this.source = source;
+    }
+
+    public static PriceSnapshot of(StockPrice stockPrice) {
+        return new PriceSnapshot(
+                stockPrice.getSymbol().toUpperCase(),
+                stockPrice.getPrice(),
+                stockPrice.getChangeAmount(),
+                stockPrice.getChangePercent(),
+                stockPrice.getVolume(),
+                stockPrice.getTimestamp(),
+                stockPrice.getSource()
+        );
+    }
+
+    // Detached StockPrice copy for callers that still work with the entity type
+    public StockPrice toStockPrice() {
+        StockPrice stockPrice = new StockPrice(symbol, price, changeAmount, changePercent, volume, source);
+        stockPrice.setTimestamp(timestamp);
+        return stockPrice;
+    }
+
+    public boolean isFresh(Duration maxAge) {
+        return timestamp.isAfter(LocalDateTime.now().minus(maxAge));
+    }
+
+    public boolean isNewerThan(PriceSnapshot other) {
+        return other == null || !timestamp.isBefore(other.timestamp);
+    }
+
+    public String getSymbol() { return symbol; }
+    public BigDecimal getPrice() { return price; }
+    public BigDecimal getChangeAmount() { return changeAmount; }
+    public BigDecimal getChangePercent() { return changePercent; }
+    public Long getVolume() { return volume; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getSource() { return source; }
+}
@@ -5,7 +5,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stock_prices")
+@Table(name = "stock_prices", indexes = {
+        @Index(name = "idx_stock_prices_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_stock_prices_symbol_timestamp", columnList = "symbol, timestamp")
+})
 public class StockPrice {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
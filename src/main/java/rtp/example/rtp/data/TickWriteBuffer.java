@@ -0,0 +1,167 @@
+package rtp.example.rtp.data;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for stock_prices history.
+ * <p>
+ * Ticks are queued by the ingest path and written by a single background thread as JDBC batch inserts,
+ * flushed when a batch fills up or the flush interval passes. Ids come from the table's identity column,
+ * so rows need no per-insert key round trip. When the queue is full, new ticks are dropped (and counted)
+ * rather than slowing down price ingestion.
+ */
+@Component
+public class TickWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickWriteBuffer.class);
+
+    private static final String INSERT_SQL = "INSERT INTO stock_prices "
+            + "(symbol, price, change_amount, change_percent, volume, timestamp, source) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<StockPrice> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    public TickWriteBuffer(JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${market-data.tick-writer.batch-size:1000}") int batchSize,
+                           @Value("${market-data.tick-writer.flush-interval:200ms}") Duration flushInterval,
+                           @Value("${market-data.tick-writer.capacity:100000}") int capacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.queue = new LinkedBlockingQueue<>(capacity);
+
+        this.writtenCounter = Counter.builder("stock-prices.writer.rows")
+                .description("Price history rows written in batches")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stock-prices.writer.rows")
+                .description("Price history rows dropped because the write buffer was full")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("stock-prices.writer.rows")
+                .description("Price history rows lost to failed batch inserts")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        meterRegistry.gauge("stock-prices.writer.queued", queue, BlockingQueue::size);
+
+        this.writer = new Thread(this::run, "tick-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Queue a tick for persistence; never blocks
+    public void enqueue(StockPrice stockPrice) {
+        if (!queue.offer(stockPrice)) {
+            droppedCounter.increment();
+            long dropped = droppedTotal.incrementAndGet();
+            if (dropped == 1 || dropped % 10_000 == 0) {
+                logger.warn("Tick write buffer full, dropping price history rows ({} dropped so far)", dropped);
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<StockPrice> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                StockPrice first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or the flush interval since its first row has passed
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    StockPrice next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Stop taking the interrupt as a signal; the loop still drains whatever is left
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<StockPrice> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, tick) -> {
+                ps.setString(1, tick.getSymbol());
+                ps.setBigDecimal(2, tick.getPrice());
+                setNullableDecimal(ps, 3, tick.getChangeAmount());
+                setNullableDecimal(ps, 4, tick.getChangePercent());
+                ps.setLong(5, tick.getVolume() != null ? tick.getVolume() : 0L);
+                ps.setTimestamp(6, Timestamp.valueOf(tick.getTimestamp()));
+                ps.setString(7, tick.getSource());
+            });
+            writtenCounter.increment(batch.size());
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            logger.error("Failed to write {} price history rows", batch.size(), e);
+        }
+    }
+
+    private static void setNullableDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value);
+        } else {
+            ps.setNull(index, Types.NUMERIC);
+        }
+    }
+
+    // Write out everything still queued before the datasource goes away
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -0,0 +1,173 @@
+package rtp.example.rtp.data.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+/**
+ * Archive tier for price history: one {@link TickFile} per symbol and day under
+ * {@code <dir>/<SYMBOL>/<yyyy-MM-dd>.ticks}, read through memory-mapped files. Characters other than letters,
+ * digits, '.' and '-' are percent-encoded in the directory name (e.g. {@code BINANCE%3ABTCUSDT}), as is a
+ * leading '.', so any symbol gets a directory of its own inside the archive.
+ * <p>
+ * A watermark records the first day that is not archived yet. Every day before it is served from the
+ * archive and every day from it onwards from stock_prices, so readers never see a day twice or not at all
+ * while the archive job is moving data.
+ */
+@Component
+public class TickArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickArchive.class);
+
+    private static final String FILE_SUFFIX = ".ticks";
+    private static final String WATERMARK_FILE = "archived-until";
+    // Well under the usual 255-byte file name limit
+    private static final int MAX_DIRECTORY_NAME = 200;
+    private static final String HEX_DIGITS = "0123456789ABCDEF";
+
+    private final boolean enabled;
+    private final Path root;
+    private volatile LocalDate archivedUntil;
+
+    public TickArchive(@Value("${market-data.archive.enabled:false}") boolean enabled,
+                       @Value("${market-data.archive.dir:tick-archive}") String dir) {
+        this.enabled = enabled;
+        this.root = Paths.get(dir).toAbsolutePath();
+        if (enabled) {
+            this.archivedUntil = readWatermark();
+            logger.info("Tick archive at {}, archived until {}", root, archivedUntil);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // First day still held in stock_prices; empty when nothing has been archived
+    public Optional<LocalDate> getArchivedUntil() {
+        return enabled ? Optional.ofNullable(archivedUntil) : Optional.empty();
+    }
+
+    // Replace a symbol-day file atomically, so readers see either the old or the new file. Returns false,
+    // writing nothing, for a symbol too long to be a directory name
+    boolean writeDay(String symbol, LocalDate day, byte[] contents) throws IOException {
+        String name = directoryName(symbol);
+        if (name == null) {
+            return false;
+        }
+        Path dir = root.resolve(name);
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(day + FILE_SUFFIX + ".tmp");
+        Files.write(tmp, contents);
+        Files.move(tmp, dir.resolve(day + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    void advanceWatermark(LocalDate until) throws IOException {
+        Files.createDirectories(root);
+        Path tmp = root.resolve(WATERMARK_FILE + ".tmp");
+        Files.writeString(tmp, until.toString(), StandardCharsets.US_ASCII);
+        Files.move(tmp, root.resolve(WATERMARK_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        archivedUntil = until;
+    }
+
+    private LocalDate readWatermark() {
+        try {
+            return LocalDate.parse(Files.readString(root.resolve(WATERMARK_FILE), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read tick archive watermark in " + root, e);
+        }
+    }
+
+    // Stream archived ticks for [from, to) in timestamp order; returns the number of ticks read
+    public long scan(String symbol, LocalDateTime from, LocalDateTime to, TickFile.TickConsumer consumer) {
+        LocalDate until = archivedUntil;
+        if (!enabled || until == null) {
+            return 0;
+        }
+        long fromMillis = from.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long toMillis = to.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long[] count = {0};
+        TickFile.TickConsumer counting = (millis, price, volume) -> {
+            count[0]++;
+            consumer.accept(millis, price, volume);
+        };
+
+        String name = directoryName(symbol.toUpperCase());
+        if (name == null) {
+            return 0;
+        }
+        Path dir = root.resolve(name);
+        for (LocalDate day = from.toLocalDate(); day.isBefore(until) && !day.atStartOfDay().isAfter(to); day = day.plusDays(1)) {
+            Path file = dir.resolve(day + FILE_SUFFIX);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                TickFile.read(mapped, fromMillis, toMillis, false, counting);
+            } catch (NoSuchFileException e) {
+                // No ticks for this symbol on that day
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read tick archive file " + file, e);
+            }
+        }
+        return count[0];
+    }
+
+    // Remove archived days before the cutoff; returns the number of files deleted
+    int deleteDaysBefore(LocalDate cutoff) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> symbols = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path symbolDir : symbols) {
+                try (DirectoryStream<Path> days = Files.newDirectoryStream(symbolDir, "*" + FILE_SUFFIX)) {
+                    for (Path file : days) {
+                        String name = file.getFileName().toString();
+                        LocalDate day = LocalDate.parse(name.substring(0, name.length() - FILE_SUFFIX.length()));
+                        if (day.isBefore(cutoff)) {
+                            Files.delete(file);
+                            deleted++;
+                        }
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // Directory name for a symbol: plain tickers are used as they are, so the name never leaves the archive
+    // directory and two symbols never share one; null if the name would be too long
+    static String directoryName(String symbol) {
+        StringBuilder name = new StringBuilder(symbol.length());
+        for (byte b : symbol.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            boolean plain = (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || (c == '.' && !name.isEmpty());
+            if (plain) {
+                name.append(c);
+            } else {
+                name.append('%').append(HEX_DIGITS.charAt(c >> 4)).append(HEX_DIGITS.charAt(c & 0xF));
+            }
+        }
+        return name.isEmpty() || name.length() > MAX_DIRECTORY_NAME ? null : name.toString();
+    }
+}
@@ -0,0 +1,171 @@
+package rtp.example.rtp.data.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Moves whole days of ticks from stock_prices into the {@link TickArchive} once they are older than
+ * {@code market-data.archive.after-days}, and deletes archived days past the archive retention.
+ * <p>
+ * Per day: write every symbol's file, advance the watermark, then delete the day's rows. If the job stops
+ * half way, the day is either still served from the database or already from the archive, and rows left
+ * behind under the watermark are deleted on the next run. Any symbol is archived under an encoded
+ * directory name; only a symbol too long for one is skipped and logged, so it never holds up the day.
+ */
+@Component
+public class TickArchiveJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickArchiveJob.class);
+
+    // Symbols are grouped case-insensitively: a day's "aapl" and "AAPL" rows go into the same file
+    private static final String DAY_SQL = "SELECT UPPER(symbol), timestamp, price, volume FROM stock_prices "
+            + "WHERE timestamp >= ? AND timestamp < ? ORDER BY UPPER(symbol), timestamp";
+
+    private final TickArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final int afterDays;
+    private final int retentionDays;
+    private final int fetchSize;
+
+    private final Counter archivedTicks;
+    private final Counter archivedFiles;
+
+    public TickArchiveJob(TickArchive archive,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${market-data.archive.after-days:2}") int afterDays,
+                          @Value("${market-data.archive.retention-days:365}") int retentionDays,
+                          @Value("${market-data.history.fetch-size:5000}") int fetchSize) {
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.afterDays = afterDays;
+        this.retentionDays = retentionDays;
+        this.fetchSize = fetchSize;
+        this.archivedTicks = Counter.builder("stock-prices.archive.ticks")
+                .description("Ticks moved from stock_prices to the tick archive")
+                .register(meterRegistry);
+        this.archivedFiles = Counter.builder("stock-prices.archive.files")
+                .description("Symbol-day files written to the tick archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${market-data.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${market-data.archive.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (!archive.isEnabled()) {
+            return;
+        }
+        try {
+            run();
+        } catch (Exception e) {
+            logger.error("Tick archiving failed", e);
+        }
+    }
+
+    public void run() throws IOException {
+        LocalDate target = LocalDate.now().minusDays(afterDays);
+        LocalDate day = archive.getArchivedUntil().orElse(null);
+
+        if (day != null) {
+            // Rows a previous run archived but did not get to delete
+            jdbcTemplate.update("DELETE FROM stock_prices WHERE timestamp < ?", Timestamp.valueOf(day.atStartOfDay()));
+        } else {
+            Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM stock_prices", Timestamp.class);
+            if (oldest == null) {
+                return;
+            }
+            day = oldest.toLocalDateTime().toLocalDate();
+        }
+
+        for (; day.isBefore(target); day = day.plusDays(1)) {
+            long started = System.currentTimeMillis();
+            DayResult result = archiveDay(day);
+            archive.advanceWatermark(day.plusDays(1));
+            int deleted = jdbcTemplate.update("DELETE FROM stock_prices WHERE timestamp >= ? AND timestamp < ?",
+                    Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+
+            archivedTicks.increment(result.ticks);
+            archivedFiles.increment(result.files);
+            logger.info("Archived {} ticks for {} into {} files, removed {} rows ({} ms)",
+                    result.ticks, day, result.files, deleted, System.currentTimeMillis() - started);
+        }
+
+        int expired = archive.deleteDaysBefore(LocalDate.now().minusDays(retentionDays));
+        if (expired > 0) {
+            logger.info("Deleted {} tick archive files older than {} days", expired, retentionDays);
+        }
+    }
+
+    // Stream the day ordered by symbol and time, writing one file per symbol
+    private DayResult archiveDay(LocalDate day) {
+        DayResult result = new DayResult();
+        readTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DAY_SQL);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            String symbol = rs.getString(1);
+            if (!symbol.equals(result.symbol)) {
+                result.flush(day);
+                result.symbol = symbol;
+                result.writer = new TickFile.Writer();
+            }
+            result.writer.add(
+                    rs.getTimestamp(2).toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                    rs.getBigDecimal(3).setScale(TickFile.PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValue(),
+                    rs.getLong(4));
+        }));
+        result.flush(day);
+        return result;
+    }
+
+    private class DayResult {
+        private String symbol;
+        private TickFile.Writer writer;
+        private long ticks;
+        private int files;
+
+        void flush(LocalDate day) {
+            if (writer == null || writer.getCount() == 0) {
+                return;
+            }
+            boolean written;
+            try {
+                written = archive.writeDay(symbol, day, writer.toBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write tick archive for " + symbol + " on " + day, e);
+            }
+            if (written) {
+                ticks += writer.getCount();
+                files++;
+            } else {
+                logger.warn("Not archiving {} ticks for {} on {}: symbol too long for a file name",
+                        writer.getCount(), symbol, day);
+            }
+            writer = null;
+        }
+    }
+}
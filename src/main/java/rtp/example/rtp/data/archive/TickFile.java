@@ -0,0 +1,138 @@
+package rtp.example.rtp.data.archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Columnar encoding of one symbol's ticks for one day.
+ * <p>
+ * Layout: a fixed header (magic, tick count, first timestamp, first price, column lengths) followed by
+ * three columns - timestamps, prices and volumes. Timestamps (epoch millis) and prices (1/10000 units)
+ * are stored as zigzag varint deltas from the previous tick, volumes as plain varints, so a typical tick
+ * takes 4-6 bytes. Readers can decode the time and price columns without touching volumes.
+ */
+public final class TickFile {
+
+    static final int MAGIC = 0x544B4131; // "TKA1"
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    public static final int PRICE_SCALE = 4;
+
+    private TickFile() {
+    }
+
+    // Receives decoded ticks; times are local epoch millis, prices in 1/10000 units
+    @FunctionalInterface
+    public interface TickConsumer {
+        void accept(long epochMillis, long priceUnits, long volume);
+    }
+
+    // Accumulates one symbol-day in column buffers; ticks must be added in timestamp order
+    public static class Writer {
+        private final ColumnBuffer times = new ColumnBuffer();
+        private final ColumnBuffer prices = new ColumnBuffer();
+        private final ColumnBuffer volumes = new ColumnBuffer();
+        private int count;
+        private long firstMillis;
+        private long firstPrice;
+        private long lastMillis;
+        private long lastPrice;
+
+        public void add(long epochMillis, long priceUnits, long volume) {
+            if (count == 0) {
+                firstMillis = epochMillis;
+                firstPrice = priceUnits;
+                lastMillis = epochMillis;
+                lastPrice = priceUnits;
+            }
+            times.writeVarLong(zigzag(epochMillis - lastMillis));
+            prices.writeVarLong(zigzag(priceUnits - lastPrice));
+            volumes.writeVarLong(Math.max(0, volume));
+            lastMillis = epochMillis;
+            lastPrice = priceUnits;
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public byte[] toBytes() {
+            ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + times.size + prices.size + volumes.size);
+            out.putInt(MAGIC)
+                    .putInt(count)
+                    .putLong(firstMillis)
+                    .putLong(firstPrice)
+                    .putInt(times.size)
+                    .putInt(prices.size)
+                    .putInt(volumes.size);
+            out.put(times.bytes, 0, times.size);
+            out.put(prices.bytes, 0, prices.size);
+            out.put(volumes.bytes, 0, volumes.size);
+            return out.array();
+        }
+    }
+
+    // Decode ticks with fromMillis <= time < toMillis; stops early once past the range
+    public static void read(ByteBuffer file, long fromMillis, long toMillis, boolean withVolume, TickConsumer consumer) {
+        if (file.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a tick archive file");
+        }
+        int count = file.getInt(4);
+        long millis = file.getLong(8);
+        long price = file.getLong(16);
+        int timeBytes = file.getInt(24);
+        int priceBytes = file.getInt(28);
+
+        ByteBuffer times = file.duplicate().position(HEADER_BYTES);
+        ByteBuffer prices = file.duplicate().position(HEADER_BYTES + timeBytes);
+        ByteBuffer volumes = file.duplicate().position(HEADER_BYTES + timeBytes + priceBytes);
+
+        for (int i = 0; i < count; i++) {
+            millis += unzigzag(readVarLong(times));
+            price += unzigzag(readVarLong(prices));
+            long volume = withVolume ? readVarLong(volumes) : 0;
+            if (millis >= toMillis) {
+                return;
+            }
+            if (millis >= fromMillis) {
+                consumer.accept(millis, price, volume);
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static class ColumnBuffer {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void writeVarLong(long value) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
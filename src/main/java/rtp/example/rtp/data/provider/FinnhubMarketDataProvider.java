@@ -0,0 +1,117 @@
+package rtp.example.rtp.data.provider;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import rtp.example.rtp.common.exception.StockDataException;
+import rtp.example.rtp.data.StockPrice;
+import rtp.example.rtp.stock.CompanyProfile;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Component
+@Profile("!synthetic")
+public class FinnhubMarketDataProvider implements MarketDataProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(FinnhubMarketDataProvider.class);
+
+    public static final String SOURCE = "FINNHUB";
+
+    @Value("${stock.api.key}")
+    private String apiKey;
+
+    @Value("${stock.api.url}")
+    private String apiUrl;
+
+    private final RestTemplate restTemplate;
+
+    public FinnhubMarketDataProvider(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    // API response DTO mapping
+    private static class StockApiResponse {
+        @JsonProperty("c")
+        private BigDecimal currentPrice;
+
+        @JsonProperty("d")
+        private BigDecimal change;
+
+        @JsonProperty("dp")
+        private BigDecimal changePercent;
+
+        @JsonProperty("v")
+        private Long volume;
+
+        public BigDecimal getCurrentPrice() { return currentPrice; }
+        public BigDecimal getChange() { return change; }
+        public BigDecimal getChangePercent() { return changePercent; }
+        public Long getVolume() { return volume; }
+    }
+
+    // API response DTO for company profile
+    private static class CompanyProfileResponse {
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("ticker")
+        private String ticker;
+
+        @JsonProperty("exchange")
+        private String exchange;
+
+        @JsonProperty("finnhubIndustry")
+        private String industry;
+
+        @JsonProperty("currency")
+        private String currency;
+
+        public String getName() { return name; }
+        public String getTicker() { return ticker; }
+        public String getExchange() { return exchange; }
+        public String getIndustry() { return industry; }
+        public String getCurrency() { return currency; }
+    }
+
+    @Override
+    public String getSource() {
+        return SOURCE;
+    }
+
+    @Override
+    public StockPrice fetchQuote(String symbol) {
+        String url = String.format("%s/quote?symbol=%s&token=%s", apiUrl, symbol, apiKey);
+        StockApiResponse response = restTemplate.getForObject(url, StockApiResponse.class);
+
+        if (response == null || response.getCurrentPrice() == null) {
+            throw new StockDataException("Invalid response from stock API for " + symbol);
+        }
+
+        // Default nullable numeric fields to safe values
+        BigDecimal change = response.getChange() != null ? response.getChange() : BigDecimal.ZERO;
+        BigDecimal changePercent = response.getChangePercent() != null ? response.getChangePercent() : BigDecimal.ZERO;
+        Long volume = response.getVolume() != null ? response.getVolume() : 0L;
+
+        return new StockPrice(symbol, response.getCurrentPrice(), change, changePercent, volume, SOURCE);
+    }
+
+    @Override
+    public Optional<CompanyProfile> fetchCompanyProfile(String symbol) {
+        String key = symbol.toUpperCase();
+        String url = String.format("%s/stock/profile2?symbol=%s&token=%s", apiUrl, key, apiKey);
+        CompanyProfileResponse response = restTemplate.getForObject(url, CompanyProfileResponse.class);
+
+        // Finnhub answers unknown tickers with an empty object
+        if (response == null || response.getName() == null || response.getName().isEmpty()) {
+            logger.debug("No company profile for {}", key);
+            return Optional.empty();
+        }
+        return Optional.of(new CompanyProfile(key, response.getName(), response.getExchange(),
+                response.getIndustry(), response.getCurrency()));
+    }
+}
@@ -0,0 +1,22 @@
+package rtp.example.rtp.data.provider;
+
+import rtp.example.rtp.data.StockPrice;
+import rtp.example.rtp.stock.CompanyProfile;
+
+import java.util.Optional;
+
+/**
+ * Source of market data for RealTimeStockDataService.
+ * The Finnhub provider is used by default; the "synthetic" profile swaps in a local simulated feed.
+ */
+public interface MarketDataProvider {
+
+    // Value stored in StockPrice.source, e.g. "FINNHUB"
+    String getSource();
+
+    // Fetch a fresh quote; throws StockDataException when no price is available
+    StockPrice fetchQuote(String symbol);
+
+    // Company profile for a symbol; empty when the provider does not know the ticker, throws when the call fails
+    Optional<CompanyProfile> fetchCompanyProfile(String symbol);
+}
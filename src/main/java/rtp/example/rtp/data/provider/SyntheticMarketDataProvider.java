@@ -0,0 +1,92 @@
+package rtp.example.rtp.data.provider;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import rtp.example.rtp.data.StockPrice;
+import rtp.example.rtp.stock.CompanyProfile;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Offline price source for load testing: every symbol follows its own geometric Brownian motion.
+ * Enabled with the "synthetic" profile; no network access or API key is needed.
+ */
+@Component
+@Profile("synthetic")
+public class SyntheticMarketDataProvider implements MarketDataProvider {
+
+    public static final String SOURCE = "SYNTHETIC";
+
+    // 252 trading days of 6.5 hours, so volatility and drift can be given as annual figures
+    private static final double SECONDS_PER_TRADING_YEAR = 252 * 6.5 * 3600;
+
+    private final double volatility;
+    private final double drift;
+    private final double timeScale;
+
+    private final ConcurrentHashMap<String, SyntheticSeries> series = new ConcurrentHashMap<>();
+
+    public SyntheticMarketDataProvider(@Value("${market-data.synthetic.volatility:0.30}") double volatility,
+                                       @Value("${market-data.synthetic.drift:0.05}") double drift,
+                                       @Value("${market-data.synthetic.time-scale:1}") double timeScale) {
+        this.volatility = volatility;
+        this.drift = drift;
+        this.timeScale = timeScale;
+    }
+
+    @Override
+    public String getSource() {
+        return SOURCE;
+    }
+
+    @Override
+    public StockPrice fetchQuote(String symbol) {
+        String key = symbol.toUpperCase();
+        return series.computeIfAbsent(key, SyntheticSeries::new).next();
+    }
+
+    @Override
+    public Optional<CompanyProfile> fetchCompanyProfile(String symbol) {
+        String key = symbol.toUpperCase();
+        return Optional.of(new CompanyProfile(key, key, "SYNTHETIC", null, "USD"));
+    }
+
+    // Price path for one symbol; the open price is derived from the symbol so restarts look alike
+    private class SyntheticSeries {
+        private final String symbol;
+        private final double open;
+        private double price;
+        private long lastStepNanos;
+
+        SyntheticSeries(String symbol) {
+            this.symbol = symbol;
+            this.open = 20 + Math.floorMod(symbol.hashCode(), 480);
+            this.price = open;
+            this.lastStepNanos = System.nanoTime();
+        }
+
+        synchronized StockPrice next() {
+            long now = System.nanoTime();
+            double dt = (now - lastStepNanos) / 1e9 * timeScale / SECONDS_PER_TRADING_YEAR;
+            lastStepNanos = now;
+
+            // S(t+dt) = S(t) * exp((mu - sigma^2 / 2) dt + sigma * sqrt(dt) * Z)
+            double shock = ThreadLocalRandom.current().nextGaussian();
+            price *= Math.exp((drift - volatility * volatility / 2) * dt + volatility * Math.sqrt(dt) * shock);
+
+            BigDecimal last = BigDecimal.valueOf(price).setScale(4, RoundingMode.HALF_UP);
+            BigDecimal openPrice = BigDecimal.valueOf(open);
+            BigDecimal change = last.subtract(openPrice);
+            BigDecimal changePercent = change.multiply(BigDecimal.valueOf(100))
+                    .divide(openPrice, 2, RoundingMode.HALF_UP);
+            long volume = ThreadLocalRandom.current().nextLong(1, 500);
+
+            return new StockPrice(symbol, last, change, changePercent, volume, SOURCE);
+        }
+    }
+}
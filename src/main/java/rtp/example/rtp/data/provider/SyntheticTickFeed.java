@@ -0,0 +1,103 @@
+package rtp.example.rtp.data.provider;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import rtp.example.rtp.trading.RealTimeStockDataService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes synthetic ticks for a fixed universe of symbols into the normal ingest path,
+ * so broadcasting and order execution can be benchmarked without the Finnhub API.
+ */
+@Component
+@Profile("synthetic")
+public class SyntheticTickFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticTickFeed.class);
+
+    private final SyntheticMarketDataProvider provider;
+    private final RealTimeStockDataService stockDataService;
+    private final List<String> universe;
+    private final double ticksPerSecond;
+    private final boolean enabled;
+
+    private ScheduledExecutorService executor;
+
+    public SyntheticTickFeed(SyntheticMarketDataProvider provider,
+                             RealTimeStockDataService stockDataService,
+                             @Value("${market-data.synthetic.symbols:AAPL,MSFT,GOOGL,AMZN,TSLA}") String symbols,
+                             @Value("${market-data.synthetic.universe-size:0}") int universeSize,
+                             @Value("${market-data.synthetic.ticks-per-second:1}") double ticksPerSecond,
+                             @Value("${market-data.synthetic.feed-enabled:true}") boolean enabled) {
+        this.provider = provider;
+        this.stockDataService = stockDataService;
+        this.universe = buildUniverse(symbols, universeSize);
+        this.ticksPerSecond = ticksPerSecond;
+        this.enabled = enabled;
+    }
+
+    // Configured symbols plus generated SYN0001..SYNnnnn ones for large-universe tests
+    private static List<String> buildUniverse(String symbols, int universeSize) {
+        Set<String> result = new LinkedHashSet<>();
+        Arrays.stream(symbols.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(String::toUpperCase)
+                .forEach(result::add);
+        for (int i = 1; i <= universeSize; i++) {
+            result.add(String.format("SYN%04d", i));
+        }
+        return new ArrayList<>(result);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || universe.isEmpty() || ticksPerSecond <= 0) {
+            return;
+        }
+        long periodMicros = Math.max(1, (long) (1_000_000 / ticksPerSecond));
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "synthetic-tick-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::emitTicks, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+        logger.info("Synthetic tick feed started: {} symbols at {} ticks/s each", universe.size(), ticksPerSecond);
+    }
+
+    // One tick per symbol per cycle
+    private void emitTicks() {
+        for (String symbol : universe) {
+            try {
+                stockDataService.recordTick(provider.fetchQuote(symbol));
+            } catch (Exception e) {
+                logger.warn("Failed to record synthetic tick for {}", symbol, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public List<String> getUniverse() {
+        return List.copyOf(universe);
+    }
+}
@@ -0,0 +1,218 @@
+package rtp.example.rtp.data.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import rtp.example.rtp.data.PriceBook;
+import rtp.example.rtp.data.PriceSnapshot;
+import rtp.example.rtp.data.StockPrice;
+import rtp.example.rtp.trading.RealTimeStockDataService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streaming ingestion mode (profile "streaming"): keeps a WebSocket subscription to a trade feed in the
+ * format of Finnhub's trade stream and turns incoming trades into price ticks.
+ * <p>
+ * Subscriptions follow the tracked symbol set. Each trade batch becomes at most one tick per symbol
+ * (last trade price, summed volume); day change is measured against the previous close implied by the
+ * last quote in the price book.
+ */
+@Component
+@Profile("streaming")
+public class TradeStreamClient extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeStreamClient.class);
+
+    public static final String SOURCE = "TRADE_STREAM";
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final RealTimeStockDataService stockDataService;
+    private final PriceBook priceBook;
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final StandardWebSocketClient client = new StandardWebSocketClient();
+
+    private volatile WebSocketSession session;
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+    private long reconnectDelayMs = 1000;
+    private long nextAttemptAt;
+
+    public TradeStreamClient(RealTimeStockDataService stockDataService,
+                             PriceBook priceBook,
+                             ObjectMapper objectMapper,
+                             @Value("${market-data.stream.url}") String url) {
+        this.stockDataService = stockDataService;
+        this.priceBook = priceBook;
+        this.objectMapper = objectMapper;
+        this.url = url;
+    }
+
+    // Connects (with exponential backoff) and keeps subscriptions in line with the tracked symbols
+    @Scheduled(fixedDelayString = "${market-data.stream.sync-interval-ms:1000}")
+    public synchronized void maintainConnection() {
+        WebSocketSession current = session;
+        if (current != null && current.isOpen()) {
+            syncSubscriptions(current);
+            return;
+        }
+        if (System.currentTimeMillis() < nextAttemptAt || !connecting.compareAndSet(false, true)) {
+            return;
+        }
+
+        logger.info("Connecting to trade stream {}", url.replaceAll("token=[^&]*", "token=***"));
+        client.execute(this, url).whenComplete((connected, error) -> {
+            connecting.set(false);
+            if (error != null) {
+                scheduleReconnect();
+                logger.warn("Trade stream connection failed, retrying in {} ms: {}", reconnectDelayMs, error.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession newSession) {
+        synchronized (this) {
+            session = new ConcurrentWebSocketSessionDecorator(newSession, 5000, 64 * 1024);
+            subscribed.clear();
+            reconnectDelayMs = 1000;
+            syncSubscriptions(session);
+        }
+        logger.info("Trade stream connected");
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession webSocketSession, TextMessage message) throws IOException {
+        JsonNode root = objectMapper.readTree(message.getPayload());
+        if (!"trade".equals(root.path("type").asText())) {
+            return; // pings and acknowledgements
+        }
+
+        // Collapse the batch to the last trade per symbol
+        Map<String, StockPrice> ticks = new HashMap<>();
+        Map<String, Long> volumes = new HashMap<>();
+        for (JsonNode trade : root.path("data")) {
+            String symbol = trade.path("s").asText().toUpperCase();
+            if (symbol.isEmpty() || !trade.hasNonNull("p")) {
+                continue;
+            }
+            volumes.merge(symbol, trade.path("v").asLong(0), Long::sum);
+            ticks.put(symbol, toStockPrice(symbol, trade.path("p").decimalValue(), trade.path("t").asLong()));
+        }
+
+        ticks.forEach((symbol, tick) -> {
+            tick.setVolume(volumes.get(symbol));
+            try {
+                stockDataService.recordTick(tick);
+            } catch (Exception e) {
+                logger.warn("Failed to record streamed trade for {}", symbol, e);
+            }
+        });
+    }
+
+    private StockPrice toStockPrice(String symbol, BigDecimal price, long epochMillis) {
+        BigDecimal change = BigDecimal.ZERO;
+        BigDecimal changePercent = BigDecimal.ZERO;
+        Optional<PriceSnapshot> last = priceBook.get(symbol);
+        if (last.isPresent() && last.get().getChangeAmount() != null) {
+            BigDecimal previousClose = last.get().getPrice().subtract(last.get().getChangeAmount());
+            if (previousClose.signum() > 0) {
+                change = price.subtract(previousClose);
+                changePercent = change.multiply(BigDecimal.valueOf(100)).divide(previousClose, 2, RoundingMode.HALF_UP);
+            }
+        }
+
+        StockPrice stockPrice = new StockPrice(symbol, price, change, changePercent, 0L, SOURCE);
+        if (epochMillis > 0) {
+            stockPrice.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+        }
+        return stockPrice;
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession webSocketSession, Throwable exception) {
+        logger.warn("Trade stream transport error: {}", exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession webSocketSession, CloseStatus status) {
+        synchronized (this) {
+            session = null;
+            subscribed.clear();
+            scheduleReconnect();
+        }
+        logger.warn("Trade stream closed ({}), reconnecting in {} ms", status, reconnectDelayMs);
+    }
+
+    private synchronized void scheduleReconnect() {
+        nextAttemptAt = System.currentTimeMillis() + reconnectDelayMs;
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+    }
+
+    private void syncSubscriptions(WebSocketSession target) {
+        Set<String> wanted = stockDataService.getActiveSymbols();
+        try {
+            for (String symbol : wanted) {
+                if (!subscribed.contains(symbol)) {
+                    send(target, "subscribe", symbol);
+                    subscribed.add(symbol);
+                }
+            }
+            for (String symbol : new HashSet<>(subscribed)) {
+                if (!wanted.contains(symbol)) {
+                    send(target, "unsubscribe", symbol);
+                    subscribed.remove(symbol);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to update trade stream subscriptions", e);
+        }
+    }
+
+    private void send(WebSocketSession target, String type, String symbol) throws IOException {
+        String payload = objectMapper.createObjectNode()
+                .put("type", type)
+                .put("symbol", symbol)
+                .toString();
+        target.sendMessage(new TextMessage(payload));
+    }
+
+    public boolean isConnected() {
+        WebSocketSession current = session;
+        return current != null && current.isOpen();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        WebSocketSession current = session;
+        if (current != null && current.isOpen()) {
+            current.close(CloseStatus.GOING_AWAY);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package rtp.example.rtp.data.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import rtp.example.rtp.data.StockPrice;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the trade stream (profile "stream-stand-in"), served at /stand-in/trades.
+ * <p>
+ * Speaks the same subscribe/unsubscribe and trade message format as Finnhub's trade stream and replays
+ * synthetic trades from geometric Brownian motion price paths, so the "streaming" ingestion mode can run
+ * without network access.
+ */
+@Configuration
+@EnableWebSocket
+@Profile("stream-stand-in")
+public class TradeStreamStandIn extends TextWebSocketHandler implements WebSocketConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeStreamStandIn.class);
+
+    public static final String PATH = "/stand-in/trades";
+
+    private final ObjectMapper objectMapper;
+    private final SyntheticMarketDataProvider prices;
+    private final ScheduledExecutorService executor;
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+    public TradeStreamStandIn(ObjectMapper objectMapper,
+                              @Value("${market-data.synthetic.volatility:0.30}") double volatility,
+                              @Value("${market-data.synthetic.drift:0.05}") double drift,
+                              @Value("${market-data.synthetic.time-scale:1}") double timeScale,
+                              @Value("${market-data.stand-in.batches-per-second:4}") double batchesPerSecond) {
+        this.objectMapper = objectMapper;
+        this.prices = new SyntheticMarketDataProvider(volatility, drift, timeScale);
+
+        long periodMicros = Math.max(1, (long) (1_000_000 / batchesPerSecond));
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trade-stream-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::emitTrades, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(this, PATH).setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new ConcurrentWebSocketSessionDecorator(session, 5000, 256 * 1024));
+        subscriptions.put(session.getId(), ConcurrentHashMap.newKeySet());
+        logger.info("Stand-in trade stream client connected: {}", session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        JsonNode request = objectMapper.readTree(message.getPayload());
+        String symbol = request.path("symbol").asText().toUpperCase();
+        Set<String> symbols = subscriptions.get(session.getId());
+        if (symbols == null || symbol.isEmpty()) {
+            return;
+        }
+        switch (request.path("type").asText()) {
+            case "subscribe" -> symbols.add(symbol);
+            case "unsubscribe" -> symbols.remove(symbol);
+            default -> logger.debug("Ignoring stand-in stream message: {}", message.getPayload());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+        subscriptions.remove(session.getId());
+    }
+
+    // One to three trades per subscribed symbol per cycle; every session sees the same trades
+    private void emitTrades() {
+        Map<String, ArrayNode> tradesBySymbol = new HashMap<>();
+        sessions.forEach((id, session) -> {
+            Set<String> symbols = subscriptions.get(id);
+            if (symbols == null || symbols.isEmpty()) {
+                return;
+            }
+            ObjectNode batch = objectMapper.createObjectNode().put("type", "trade");
+            ArrayNode data = batch.putArray("data");
+            for (String symbol : symbols) {
+                data.addAll(tradesBySymbol.computeIfAbsent(symbol, this::generateTrades));
+            }
+            try {
+                session.sendMessage(new TextMessage(batch.toString()));
+            } catch (Exception e) {
+                logger.debug("Failed to send stand-in trades to {}: {}", id, e.getMessage());
+            }
+        });
+    }
+
+    private ArrayNode generateTrades(String symbol) {
+        ArrayNode trades = objectMapper.createArrayNode();
+        int count = ThreadLocalRandom.current().nextInt(1, 4);
+        for (int i = 0; i < count; i++) {
+            StockPrice trade = prices.fetchQuote(symbol);
+            trades.addObject()
+                    .put("s", symbol)
+                    .put("p", trade.getPrice())
+                    .put("t", trade.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                    .put("v", trade.getVolume());
+        }
+        return trades;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,40 @@
+package rtp.example.rtp.order;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.math.BigDecimal;
+
+// Published by OrderService whenever an order is created, changes status or is deleted
+public class OrderChangedEvent extends ApplicationEvent {
+    private final Long orderId;
+    private final String stockSymbol;
+    private final OrderType orderType;
+    private final PriceType priceType;
+    private final BigDecimal limitPrice;
+    private final OrderStatus status;
+    private final boolean deleted;
+
+    public OrderChangedEvent(Object source, Order order, boolean deleted) {
+        super(source);
+        this.orderId = order.getId();
+        this.stockSymbol = order.getStockSymbol();
+        this.orderType = order.getOrderType();
+        this.priceType = order.getPriceType();
+        this.limitPrice = order.getLimitPrice();
+        this.status = order.getStatus();
+        this.deleted = deleted;
+    }
+
+    public Long getOrderId() { return orderId; }
+    public String getStockSymbol() { return stockSymbol; }
+    public OrderType getOrderType() { return orderType; }
+    public PriceType getPriceType() { return priceType; }
+    public BigDecimal getLimitPrice() { return limitPrice; }
+    public OrderStatus getStatus() { return status; }
+    public boolean isDeleted() { return deleted; }
+
+    // A pending limit order that can still be triggered by a price move
+    public boolean isRestingLimitOrder() {
+        return !deleted && status == OrderStatus.PENDING && priceType == PriceType.LIMIT && limitPrice != null;
+    }
+}
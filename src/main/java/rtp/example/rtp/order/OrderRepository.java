@@ -1,14 +1,37 @@
 package rtp.example.rtp.order;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByPortfolioId(Long portfolioId);
     List<Order> findByStatus(OrderStatus status);
+    List<Order> findByStatusAndPriceType(OrderStatus status, PriceType priceType);
     List<Order> findByPortfolioIdAndStatus(Long portfolioId, OrderStatus status);
     List<Order> findByStatusAndPortfolioIdIn(OrderStatus status, List<Long> portfolioIds);
     List<Order> findByPortfolioIdIn(List<Long> portfolioIds);
+
+    // [stockSymbol, count] of orders with the given status and price type
+    @Query("SELECT o.stockSymbol, COUNT(o) FROM Order o WHERE o.status = ?1 AND o.priceType = ?2 GROUP BY o.stockSymbol")
+    List<Object[]> countBySymbol(OrderStatus status, PriceType priceType);
+
+    // Mark a pending order filled; returns 0 if it is no longer pending
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = rtp.example.rtp.order.OrderStatus.FILLED, o.filledPrice = ?2, o.filledAt = ?3, "
+            + "o.version = o.version + 1 WHERE o.id = ?1 AND o.status = rtp.example.rtp.order.OrderStatus.PENDING")
+    int claimFill(Long orderId, BigDecimal filledPrice, LocalDateTime filledAt);
+
+    // Cancel a pending or just claimed order, dropping the fill details a rejected claim had already set;
+    // returns 0 for an order in any other state
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = rtp.example.rtp.order.OrderStatus.CANCELLED, o.filledPrice = NULL, "
+            + "o.filledAt = NULL, o.version = o.version + 1 WHERE o.id = ?1 "
+            + "AND o.status IN (rtp.example.rtp.order.OrderStatus.PENDING, rtp.example.rtp.order.OrderStatus.FILLED)")
+    int cancelFill(Long orderId);
 }
\ No newline at end of file
@@ -1,12 +1,13 @@
 package rtp.example.rtp.order;
 
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import rtp.example.rtp.auth.AuthorizationContext;
 import rtp.example.rtp.portfolio.PortfolioService;
-import rtp.example.rtp.user.User;
-import rtp.example.rtp.user.UserRepository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -14,29 +15,26 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final PortfolioService portfolioService;
-    private final UserRepository userRepository;
+    private final AuthorizationContext authorizationContext;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderService(OrderRepository orderRepository,
                         PortfolioService portfolioService,
-                        UserRepository userRepository) {
+                        AuthorizationContext authorizationContext,
+                        ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
         this.portfolioService = portfolioService;
-        this.userRepository = userRepository;
+        this.authorizationContext = authorizationContext;
+        this.eventPublisher = eventPublisher;
     }
 
-    private Long getCurrentUserId() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        return user.getId();
-    }
-
-    private void verifyOrderOwnership(Long orderId) {
+    private Order verifyOrderOwnership(Long orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + orderId));
 
         // Verify the user owns the portfolio for this order
-        portfolioService.getPortfolio(order.getPortfolioId());
+        portfolioService.verifyPortfolioOwnership(order.getPortfolioId());
+        return order;
     }
 
     // Admin only - restrict in controller
@@ -49,10 +47,7 @@ public class OrderService {
             throw new IllegalArgumentException("Order ID cannot be null");
         }
 
-        verifyOrderOwnership(id);
-
-        return orderRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + id));
+        return verifyOrderOwnership(id);
     }
 
     public List<Order> getOrdersByPortfolio(Long portfolioId) {
@@ -60,30 +55,18 @@ public class OrderService {
             throw new IllegalArgumentException("Portfolio ID cannot be null");
         }
 
-        // This will verify ownership
-        portfolioService.getPortfolio(portfolioId);
+        portfolioService.verifyPortfolioOwnership(portfolioId);
 
         return orderRepository.findByPortfolioId(portfolioId);
     }
 
     public List<Order> getPendingOrders() {
-        // Get current user's portfolios and filter pending orders
-        Long currentUserId = getCurrentUserId();
-
-        // Get all pending orders
-        List<Order> allPendingOrders = orderRepository.findByStatus(OrderStatus.PENDING);
-
-        // Filter to only include orders for user's portfolios
-        return allPendingOrders.stream()
-                .filter(order -> {
-                    try {
-                        portfolioService.getPortfolio(order.getPortfolioId());
-                        return true;
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .toList();
+        // Pending orders of the current user's portfolios
+        List<Long> portfolioIds = List.copyOf(authorizationContext.ownedPortfolioIds());
+        if (portfolioIds.isEmpty()) {
+            return List.of();
+        }
+        return orderRepository.findByStatusAndPortfolioIdIn(OrderStatus.PENDING, portfolioIds);
     }
 
     public Order createOrder(Order order) {
@@ -95,9 +78,11 @@ public class OrderService {
         }
 
         // Verify user owns the portfolio
-        portfolioService.getPortfolio(order.getPortfolioId());
+        portfolioService.verifyPortfolioOwnership(order.getPortfolioId());
 
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderChangedEvent(this, saved, false));
+        return saved;
     }
 
     public Order updateOrderStatus(Long orderId, OrderStatus status) {
@@ -108,11 +93,38 @@ public class OrderService {
             throw new IllegalArgumentException("Status cannot be null");
         }
 
-        verifyOrderOwnership(orderId);
-
-        Order order = getOrder(orderId);
+        Order order = verifyOrderOwnership(orderId);
         order.setStatus(status);
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderChangedEvent(this, saved, false));
+        return saved;
+    }
+
+    // Mark a pending order filled in one conditional update; false if something else already claimed it.
+    // The fill path has already checked ownership when it loaded the order
+    public boolean claimFill(Order order, BigDecimal filledPrice) {
+        LocalDateTime filledAt = LocalDateTime.now();
+        if (orderRepository.claimFill(order.getId(), filledPrice, filledAt) == 0) {
+            return false;
+        }
+        order.setStatus(OrderStatus.FILLED);
+        order.setFilledPrice(filledPrice);
+        order.setFilledAt(filledAt);
+        eventPublisher.publishEvent(new OrderChangedEvent(this, order, false));
+        return true;
+    }
+
+    // Cancel an order the fill path could not complete, whether or not it had been claimed; false if it had
+    // meanwhile moved to another state
+    public boolean cancelFill(Order order) {
+        if (orderRepository.cancelFill(order.getId()) == 0) {
+            return false;
+        }
+        order.setStatus(OrderStatus.CANCELLED);
+        order.setFilledPrice(null);
+        order.setFilledAt(null);
+        eventPublisher.publishEvent(new OrderChangedEvent(this, order, false));
+        return true;
     }
 
     public void deleteOrder(Long id) {
@@ -120,8 +132,9 @@ public class OrderService {
             throw new IllegalArgumentException("Order ID cannot be null");
         }
 
-        verifyOrderOwnership(id);
+        Order order = getOrder(id);
 
         orderRepository.deleteById(id);
+        eventPublisher.publishEvent(new OrderChangedEvent(this, order, true));
     }
 }
\ No newline at end of file
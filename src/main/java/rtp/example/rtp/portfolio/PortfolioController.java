@@ -48,21 +48,21 @@ public class PortfolioController {
     @GetMapping("/{id}/summary")
     public ResponseEntity<PortfolioCalculationService.PortfolioSummary> getPortfolioSummary(@PathVariable Long id) {
         // Service layer checks ownership
-        portfolioService.getPortfolio(id); // Verify access first
+        portfolioService.verifyPortfolioOwnership(id); // Verify access first
         PortfolioCalculationService.PortfolioSummary summary = portfolioCalculationService.getPortfolioSummary(id);
         return ResponseEntity.ok(summary);
     }
 
     @PostMapping("/{id}/recalculate")
     public ResponseEntity<String> recalculatePortfolio(@PathVariable Long id) {
-        portfolioService.getPortfolio(id); // Verify access first
+        portfolioService.verifyPortfolioOwnership(id); // Verify access first
         portfolioCalculationService.recalculatePortfolio(id);
         return ResponseEntity.ok("Portfolio recalculated successfully");
     }
 
     @GetMapping("/{id}/performance")
     public ResponseEntity<PortfolioPerformance> getPortfolioPerformance(@PathVariable Long id) {
-        portfolioService.getPortfolio(id); // Verify access first
+        portfolioService.verifyPortfolioOwnership(id); // Verify access first
         PortfolioCalculationService.PortfolioSummary summary = portfolioCalculationService.getPortfolioSummary(id);
         Portfolio portfolio = portfolioService.getPortfolio(id);
 
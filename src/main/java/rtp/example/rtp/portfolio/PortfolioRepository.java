@@ -1,8 +1,11 @@
 package rtp.example.rtp.portfolio;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +13,16 @@ import java.util.Optional;
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     Optional<Portfolio> findByUserId(Long userId);
     List<Portfolio> findAllByUserId(Long userId);
+
+    @Query("SELECT p.id FROM Portfolio p WHERE p.userId = ?1")
+    List<Long> findIdsByUserId(Long userId);
+
+    // Both return the number of rows changed; a debit changes nothing if the cash does not cover it
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Portfolio p SET p.cashBalance = p.cashBalance - ?2 WHERE p.id = ?1 AND p.cashBalance >= ?2")
+    int debitCash(Long portfolioId, BigDecimal amount);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Portfolio p SET p.cashBalance = p.cashBalance + ?2 WHERE p.id = ?1")
+    int creditCash(Long portfolioId, BigDecimal amount);
 }
\ No newline at end of file
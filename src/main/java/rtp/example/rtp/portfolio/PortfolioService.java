@@ -2,9 +2,9 @@ package rtp.example.rtp.portfolio;
 
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.context.event.EventListener;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import rtp.example.rtp.auth.AuthorizationContext;
 import rtp.example.rtp.auth.UserRegisteredEvent;
 import rtp.example.rtp.user.User;
 import rtp.example.rtp.user.UserRepository;
@@ -17,10 +17,13 @@ public class PortfolioService {
 
     private final PortfolioRepository portfolioRepository;
     private final UserRepository userRepository;
+    private final AuthorizationContext authorizationContext;
 
-    public PortfolioService(PortfolioRepository portfolioRepository, UserRepository userRepository) {
+    public PortfolioService(PortfolioRepository portfolioRepository, UserRepository userRepository,
+                            AuthorizationContext authorizationContext) {
         this.portfolioRepository = portfolioRepository;
         this.userRepository = userRepository;
+        this.authorizationContext = authorizationContext;
     }
 
     @EventListener
@@ -38,16 +41,18 @@ public class PortfolioService {
     }
 
     private Long getCurrentUserId() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        return user.getId();
+        return authorizationContext.currentUserId();
     }
 
-    private void verifyPortfolioOwnership(Long portfolioId) {
-        Portfolio portfolio = getPortfolio(portfolioId);
-        Long currentUserId = getCurrentUserId();
-        if (!portfolio.getUserId().equals(currentUserId)) {
+    // Ownership check for callers that do not need the portfolio itself; no query unless access is denied
+    public void verifyPortfolioOwnership(Long portfolioId) {
+        if (portfolioId == null) {
+            throw new IllegalArgumentException("Portfolio ID cannot be null");
+        }
+        if (!authorizationContext.ownsPortfolio(portfolioId)) {
+            if (!portfolioRepository.existsById(portfolioId)) {
+                throw new EntityNotFoundException("Portfolio not found with ID: " + portfolioId);
+            }
             throw new IllegalArgumentException("Access denied: You don't own this portfolio");
         }
     }
@@ -104,7 +109,9 @@ public class PortfolioService {
         }
 
         Portfolio portfolio = new Portfolio(userId, user.getInitialBalance());
-        return portfolioRepository.save(portfolio);
+        Portfolio saved = portfolioRepository.save(portfolio);
+        authorizationContext.portfolioCreated(saved.getId());
+        return saved;
     }
 
     public Portfolio updatePortfolio(Portfolio portfolio) {
@@ -117,10 +124,6 @@ public class PortfolioService {
 
         verifyPortfolioOwnership(portfolio.getId());
 
-        if (!portfolioRepository.existsById(portfolio.getId())) {
-            throw new EntityNotFoundException("Portfolio not found with ID: " + portfolio.getId());
-        }
-
         return portfolioRepository.save(portfolio);
     }
 
@@ -142,6 +145,18 @@ public class PortfolioService {
         updatePortfolio(portfolio);
     }
 
+    // Fill-path cash changes, each a single conditional update. Ownership is checked by the caller
+    // through the order being filled
+    public boolean debitCash(Long portfolioId, BigDecimal amount) {
+        return portfolioRepository.debitCash(portfolioId, amount) == 1;
+    }
+
+    public void creditCash(Long portfolioId, BigDecimal amount) {
+        if (portfolioRepository.creditCash(portfolioId, amount) == 0) {
+            throw new EntityNotFoundException("Portfolio not found with ID: " + portfolioId);
+        }
+    }
+
     public void updateTotalValue(Long portfolioId, BigDecimal newTotalValue) {
         if (portfolioId == null) {
             throw new IllegalArgumentException("Portfolio ID cannot be null");
@@ -164,9 +179,7 @@ public class PortfolioService {
 
         verifyPortfolioOwnership(id);
 
-        if (!portfolioRepository.existsById(id)) {
-            throw new EntityNotFoundException("Portfolio not found with ID: " + id);
-        }
         portfolioRepository.deleteById(id);
+        authorizationContext.portfolioDeleted(id);
     }
 }
\ No newline at end of file
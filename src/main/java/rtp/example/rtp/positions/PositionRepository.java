@@ -1,7 +1,10 @@
 package rtp.example.rtp.positions;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +13,27 @@ public interface PositionRepository extends JpaRepository<Position, Long> {
     List<Position> findByPortfolioId(Long portfolioId);
     Optional<Position> findByPortfolioIdAndStockSymbol(Long portfolioId, String stockSymbol);
     List<Position> findByPortfolioIdIn(List<Long> portfolioIds);
+
+    @Query("SELECT DISTINCT p.stockSymbol FROM Position p WHERE p.quantity > 0")
+    List<String> findHeldSymbols();
+
+    // Add bought shares to an existing position, folding their cost into the average price.
+    // Returns 0 if there is no position yet
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Position p SET p.quantity = p.quantity + ?3, "
+            + "p.averagePrice = (p.averagePrice * p.quantity + ?4) / (p.quantity + ?3), "
+            + "p.currentValue = p.averagePrice * p.quantity + ?4, p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE p.portfolioId = ?1 AND p.stockSymbol = ?2")
+    int addShares(Long portfolioId, String stockSymbol, int quantity, BigDecimal cost);
+
+    // Take sold shares off a position; changes nothing if it holds fewer than that
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Position p SET p.quantity = p.quantity - ?3, p.currentValue = p.averagePrice * (p.quantity - ?3), "
+            + "p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE p.portfolioId = ?1 AND p.stockSymbol = ?2 AND p.quantity >= ?3")
+    int removeShares(Long portfolioId, String stockSymbol, int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Position p WHERE p.portfolioId = ?1 AND p.stockSymbol = ?2 AND p.quantity = 0")
+    int deleteIfEmpty(Long portfolioId, String stockSymbol);
 }
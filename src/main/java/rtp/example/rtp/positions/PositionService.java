@@ -1,12 +1,10 @@
 package rtp.example.rtp.positions;
 
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import rtp.example.rtp.portfolio.PortfolioService;
-import rtp.example.rtp.user.User;
-import rtp.example.rtp.user.UserRepository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,29 +13,20 @@ public class PositionService {
 
     private final PositionRepository positionRepository;
     private final PortfolioService portfolioService;
-    private final UserRepository userRepository;
 
     public PositionService(PositionRepository positionRepository,
-                           PortfolioService portfolioService,
-                           UserRepository userRepository) {
+                           PortfolioService portfolioService) {
         this.positionRepository = positionRepository;
         this.portfolioService = portfolioService;
-        this.userRepository = userRepository;
     }
 
-    private Long getCurrentUserId() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        return user.getId();
-    }
-
-    private void verifyPositionOwnership(Long positionId) {
+    private Position verifyPositionOwnership(Long positionId) {
         Position position = positionRepository.findById(positionId)
                 .orElseThrow(() -> new EntityNotFoundException("Position not found with ID: " + positionId));
 
         // Verify the user owns the portfolio that contains this position
-        portfolioService.getPortfolio(position.getPortfolioId());
+        portfolioService.verifyPortfolioOwnership(position.getPortfolioId());
+        return position;
     }
 
     // Admin only - restrict in controller
@@ -50,10 +39,7 @@ public class PositionService {
             throw new IllegalArgumentException("Position ID cannot be null");
         }
 
-        verifyPositionOwnership(id);
-
-        return positionRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Position not found: " + id));
+        return verifyPositionOwnership(id);
     }
 
     public List<Position> getPositionsByPortfolio(Long portfolioId) {
@@ -61,8 +47,7 @@ public class PositionService {
             throw new IllegalArgumentException("Portfolio ID cannot be null");
         }
 
-        // This will verify ownership
-        portfolioService.getPortfolio(portfolioId);
+        portfolioService.verifyPortfolioOwnership(portfolioId);
 
         return positionRepository.findByPortfolioId(portfolioId);
     }
@@ -75,8 +60,7 @@ public class PositionService {
             throw new IllegalArgumentException("Stock symbol cannot be null or empty");
         }
 
-        // This will verify ownership
-        portfolioService.getPortfolio(portfolioId);
+        portfolioService.verifyPortfolioOwnership(portfolioId);
 
         return positionRepository.findByPortfolioIdAndStockSymbol(portfolioId, stockSymbol);
     }
@@ -90,7 +74,7 @@ public class PositionService {
         }
 
         // Verify user owns the portfolio
-        portfolioService.getPortfolio(position.getPortfolioId());
+        portfolioService.verifyPortfolioOwnership(position.getPortfolioId());
 
         return positionRepository.save(position);
     }
@@ -108,6 +92,24 @@ public class PositionService {
         return positionRepository.save(position);
     }
 
+    // Fill-path share changes, as conditional updates rather than load-and-save. Ownership is checked by
+    // the caller through the order being filled
+    public void addShares(Long portfolioId, String stockSymbol, int quantity, BigDecimal price) {
+        BigDecimal cost = price.multiply(new BigDecimal(quantity));
+        if (positionRepository.addShares(portfolioId, stockSymbol, quantity, cost) == 0) {
+            positionRepository.save(new Position(portfolioId, stockSymbol, quantity, price));
+        }
+    }
+
+    // False if the position holds fewer shares than that; a position sold down to zero is removed
+    public boolean removeShares(Long portfolioId, String stockSymbol, int quantity) {
+        if (positionRepository.removeShares(portfolioId, stockSymbol, quantity) == 0) {
+            return false;
+        }
+        positionRepository.deleteIfEmpty(portfolioId, stockSymbol);
+        return true;
+    }
+
     public void deletePosition(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("Position ID cannot be null");
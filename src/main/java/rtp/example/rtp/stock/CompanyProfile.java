@@ -0,0 +1,69 @@
+package rtp.example.rtp.stock;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Company metadata from the market data provider; found = false records a ticker the provider does not know
+@Entity
+@Table(name = "company_profiles")
+public class CompanyProfile {
+
+    @Id
+    private String symbol;
+
+    private String name;
+
+    private String exchange;
+
+    private String industry;
+
+    private String currency;
+
+    @Column(nullable = false)
+    private boolean found;
+
+    @Column(nullable = false)
+    private LocalDateTime fetchedAt;
+
+    public CompanyProfile() {}
+
+    public CompanyProfile(String symbol, String name, String exchange, String industry, String currency) {
+        this.symbol = symbol;
+        this.name = name;
+        this.exchange = exchange;
+        this.industry = industry;
+        this.currency = currency;
+        this.found = true;
+        this.fetchedAt = LocalDateTime.now();
+    }
+
+    public static CompanyProfile unknown(String symbol) {
+        CompanyProfile profile = new CompanyProfile();
+        profile.symbol = symbol;
+        profile.found = false;
+        profile.fetchedAt = LocalDateTime.now();
+        return profile;
+    }
+
+    // Getters and setters
+    public String getSymbol() { return symbol; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getExchange() { return exchange; }
+    public void setExchange(String exchange) { this.exchange = exchange; }
+
+    public String getIndustry() { return industry; }
+    public void setIndustry(String industry) { this.industry = industry; }
+
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    public boolean isFound() { return found; }
+    public void setFound(boolean found) { this.found = found; }
+
+    public LocalDateTime getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(LocalDateTime fetchedAt) { this.fetchedAt = fetchedAt; }
+}
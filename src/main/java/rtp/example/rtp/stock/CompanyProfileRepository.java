@@ -0,0 +1,8 @@
+package rtp.example.rtp.stock;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CompanyProfileRepository extends JpaRepository<CompanyProfile, String> {
+}
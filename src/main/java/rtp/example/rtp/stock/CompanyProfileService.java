@@ -0,0 +1,204 @@
+package rtp.example.rtp.stock;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import rtp.example.rtp.data.provider.MarketDataProvider;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Company profiles (name, exchange, industry) kept in memory and in company_profiles.
+ * <p>
+ * Lookups never call the provider: a symbol without a stored profile is answered with the ticker and
+ * queued for fetching, and stale profiles keep being served while a refresh is queued. The queue is
+ * drained at a fixed number of calls per minute so profile fetches cannot eat into the quote budget.
+ * Unknown tickers are stored as negative entries with a shorter TTL. All stored profiles are loaded on
+ * startup, and stocks without one are queued.
+ * <p>
+ * The queue is bounded: when it is full, a symbol someone is asking for displaces the last queued refresh,
+ * and other symbols are dropped until a later lookup. A symbol missing from the database is remembered for
+ * a short while, so repeated lookups of it do not go to the database while its fetch is pending.
+ */
+@Service
+public class CompanyProfileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompanyProfileService.class);
+
+    private final CompanyProfileRepository profileRepository;
+    private final StockRepository stockRepository;
+    private final MarketDataProvider marketDataProvider;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final double fetchesPerSecond;
+    private final int queueCapacity;
+
+    private final Cache<String, CompanyProfile> profiles;
+    // Symbols found in neither the cache nor the database, and already queued for a fetch
+    private final Cache<String, Boolean> missing;
+
+    // Symbols waiting for a fetch; symbols someone is asking for right now go to the front
+    private final Deque<String> fetchQueue = new ArrayDeque<>();
+    private final Set<String> queued = new HashSet<>();
+    private double tokens;
+
+    public CompanyProfileService(CompanyProfileRepository profileRepository,
+                                 StockRepository stockRepository,
+                                 MarketDataProvider marketDataProvider,
+                                 @Value("${market-data.profiles.ttl:7d}") Duration ttl,
+                                 @Value("${market-data.profiles.negative-ttl:1d}") Duration negativeTtl,
+                                 @Value("${market-data.profiles.fetch-per-minute:10}") int fetchesPerMinute,
+                                 @Value("${market-data.profiles.max-size:50000}") long maxSize,
+                                 @Value("${market-data.profiles.queue-size:1000}") int queueCapacity,
+                                 @Value("${market-data.profiles.missing-ttl:1m}") Duration missingTtl) {
+        this.profileRepository = profileRepository;
+        this.stockRepository = stockRepository;
+        this.marketDataProvider = marketDataProvider;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.fetchesPerSecond = fetchesPerMinute / 60.0;
+        this.queueCapacity = queueCapacity;
+        this.profiles = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.missing = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(missingTtl).build();
+    }
+
+    // Company name for display; falls back to the ticker until a profile has been fetched
+    public String getCompanyName(String symbol) {
+        return getProfile(symbol)
+                .filter(CompanyProfile::isFound)
+                .map(CompanyProfile::getName)
+                .orElse(symbol.toUpperCase());
+    }
+
+    public Optional<CompanyProfile> getProfile(String symbol) {
+        String key = symbol.toUpperCase();
+        CompanyProfile profile = profiles.getIfPresent(key);
+        if (profile == null) {
+            if (missing.getIfPresent(key) != null) {
+                return Optional.empty();
+            }
+            profile = profileRepository.findById(key).orElse(null);
+            if (profile != null) {
+                profiles.put(key, profile);
+            }
+        }
+
+        if (profile == null) {
+            // If the fetch fails or the queue is full, the symbol is looked up and queued again once this expires
+            missing.put(key, Boolean.TRUE);
+            enqueue(key, true);
+            return Optional.empty();
+        }
+        if (isStale(profile)) {
+            enqueue(key, false);
+        }
+        return Optional.of(profile);
+    }
+
+    private boolean isStale(CompanyProfile profile) {
+        Duration maxAge = profile.isFound() ? ttl : negativeTtl;
+        return profile.getFetchedAt().isBefore(LocalDateTime.now().minus(maxAge));
+    }
+
+    private synchronized void enqueue(String symbol, boolean urgent) {
+        if (!queued.contains(symbol) && fetchQueue.size() >= queueCapacity) {
+            if (!urgent) {
+                return;
+            }
+            queued.remove(fetchQueue.pollLast());
+        }
+        if (queued.add(symbol)) {
+            if (urgent) {
+                fetchQueue.addFirst(symbol);
+            } else {
+                fetchQueue.addLast(symbol);
+            }
+        } else if (urgent && fetchQueue.remove(symbol)) {
+            fetchQueue.addFirst(symbol);
+        }
+    }
+
+    private synchronized String nextToFetch() {
+        // Cap the saved-up budget so a quiet period does not turn into a burst
+        tokens = Math.min(tokens + fetchesPerSecond, Math.max(1.0, fetchesPerSecond * 5));
+        if (tokens < 1 || fetchQueue.isEmpty()) {
+            return null;
+        }
+        tokens -= 1;
+        String symbol = fetchQueue.pollFirst();
+        queued.remove(symbol);
+        return symbol;
+    }
+
+    private synchronized int queuedCount() {
+        return queued.size();
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void fetchQueuedProfiles() {
+        String symbol;
+        while ((symbol = nextToFetch()) != null) {
+            fetch(symbol);
+        }
+    }
+
+    private void fetch(String symbol) {
+        CompanyProfile profile;
+        try {
+            profile = marketDataProvider.fetchCompanyProfile(symbol).orElseGet(() -> CompanyProfile.unknown(symbol));
+        } catch (Exception e) {
+            // Not cached: the next lookup queues it again
+            logger.warn("Failed to fetch company profile for {}: {}", symbol, e.getMessage());
+            return;
+        }
+
+        profileRepository.save(profile);
+        profiles.put(symbol, profile);
+        missing.invalidate(symbol);
+        logger.debug("Stored company profile for {} (found: {})", symbol, profile.isFound());
+
+        // Stocks created before the profile arrived carry the ticker as their name
+        if (profile.isFound()) {
+            stockRepository.findById(symbol)
+                    .filter(stock -> symbol.equals(stock.getCompanyName()))
+                    .ifPresent(stock -> {
+                        stock.setCompanyName(profile.getName());
+                        stockRepository.save(stock);
+                    });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            int loaded = 0;
+            for (CompanyProfile profile : profileRepository.findAll()) {
+                profiles.put(profile.getSymbol(), profile);
+                if (isStale(profile)) {
+                    enqueue(profile.getSymbol(), false);
+                }
+                loaded++;
+            }
+            for (Stock stock : stockRepository.findAll()) {
+                if (profiles.getIfPresent(stock.getSymbol()) == null) {
+                    enqueue(stock.getSymbol(), false);
+                }
+            }
+            logger.info("Loaded {} company profiles, {} queued for fetching", loaded, queuedCount());
+        } catch (Exception e) {
+            logger.warn("Failed to warm up company profiles", e);
+        }
+    }
+}
@@ -1,22 +1,37 @@
 package rtp.example.rtp.stock;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import rtp.example.rtp.trading.RealTimeStockDataService;
+import rtp.example.rtp.trading.SymbolIds;
+import rtp.example.rtp.data.CandleAggregator;
+import rtp.example.rtp.data.CandleInterval;
 import rtp.example.rtp.data.StockPrice;
 import rtp.example.rtp.common.exception.StockDataException;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/stocks")
 public class StockController {
 
     private final StockService stockService;
     private final RealTimeStockDataService realTimeStockDataService;
+    private final CandleAggregator candleAggregator;
+    private final CompanyProfileService companyProfileService;
+    private final SymbolIds symbolIds;
 
-    public StockController(StockService stockService, RealTimeStockDataService realTimeStockDataService){
+    public StockController(StockService stockService, RealTimeStockDataService realTimeStockDataService,
+                           CandleAggregator candleAggregator, CompanyProfileService companyProfileService,
+                           SymbolIds symbolIds){
         this.stockService = stockService;
         this.realTimeStockDataService = realTimeStockDataService;
+        this.candleAggregator = candleAggregator;
+        this.companyProfileService = companyProfileService;
+        this.symbolIds = symbolIds;
     }
 
     @GetMapping
@@ -42,7 +57,7 @@ public class StockController {
         }
         String normalized = req.getSymbol().trim().toUpperCase();
         String companyName = (req.getCompanyName() == null || req.getCompanyName().trim().isEmpty())
-                ? normalized
+                ? companyProfileService.getCompanyName(normalized)
                 : req.getCompanyName().trim();
 
         //check if stock already exists
@@ -123,6 +138,34 @@ public class StockController {
         }
     }
 
+    // OHLCV bars aggregated on ingest; interval is 1m, 5m, 1h or 1d, oldest bar first
+    @GetMapping("/{symbol}/candles")
+    public ResponseEntity<?> getCandles(@PathVariable String symbol,
+                                        @RequestParam(defaultValue = "1m") String interval,
+                                        @RequestParam(required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        CandleInterval candleInterval;
+        try {
+            candleInterval = CandleInterval.fromCode(interval);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body("limit must be positive");
+        }
+        String normalized = symbol.trim().toUpperCase();
+        realTimeStockDataService.trackSymbol(normalized);
+        int capped = Math.min(limit, candleAggregator.getMaxBars(candleInterval));
+        return ResponseEntity.ok(candleAggregator.getCandles(normalized, candleInterval, from, capped));
+    }
+
+    // Symbol ids used by binary price messages; symbols[i] has id from + i
+    @GetMapping("/symbol-ids")
+    public ResponseEntity<?> getSymbolIds(@RequestParam(defaultValue = "0") int from) {
+        return ResponseEntity.ok(new SymbolIdsResponse(from, symbolIds.symbolsFrom(from)));
+    }
+
     // DTO for create request (step 1)
     public static class CreateStockRequest {
         private String symbol;
@@ -164,4 +207,17 @@ public class StockController {
         public java.time.LocalDateTime getTimestamp() { return timestamp; }
         public String getSource() { return source; }
     }
-}
\ No newline at end of file
+
+    public static class SymbolIdsResponse {
+        private final int from;
+        private final List<String> symbols;
+
+        public SymbolIdsResponse(int from, List<String> symbols) {
+            this.from = from;
+            this.symbols = symbols;
+        }
+
+        public int getFrom() { return from; }
+        public List<String> getSymbols() { return symbols; }
+    }
+}
@@ -0,0 +1,47 @@
+package rtp.example.rtp.stock;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import rtp.example.rtp.data.PriceHistoryService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Chart history: stored ticks for a time range, downsampled (LTTB) to at most the requested width in points
+@RestController
+@RequestMapping("/api/v1/stocks")
+public class StockHistoryController {
+
+    private static final int MAX_POINTS = 5000;
+    private static final Duration MAX_RANGE = Duration.ofDays(366);
+
+    private final PriceHistoryService priceHistoryService;
+
+    public StockHistoryController(PriceHistoryService priceHistoryService) {
+        this.priceHistoryService = priceHistoryService;
+    }
+
+    @GetMapping("/{symbol}/history")
+    public ResponseEntity<?> getHistory(@PathVariable String symbol,
+                                        @RequestParam(required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                        @RequestParam(required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                        @RequestParam(defaultValue = "1000") int width) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().body("from must be before to");
+        }
+        if (Duration.between(start, end).compareTo(MAX_RANGE) > 0) {
+            return ResponseEntity.badRequest().body("Range must not exceed " + MAX_RANGE.toDays() + " days");
+        }
+        if (width < 3 || width > MAX_POINTS) {
+            return ResponseEntity.badRequest().body("width must be between 3 and " + MAX_POINTS);
+        }
+
+        return ResponseEntity.ok(priceHistoryService.getHistory(symbol.trim().toUpperCase(), start, end, width));
+    }
+}
@@ -0,0 +1,240 @@
+package rtp.example.rtp.trading;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import rtp.example.rtp.data.PriceBook;
+import rtp.example.rtp.data.PriceSnapshot;
+import rtp.example.rtp.order.OrderRepository;
+import rtp.example.rtp.order.OrderStatus;
+import rtp.example.rtp.order.PriceType;
+import rtp.example.rtp.positions.PositionRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which tracked symbols to refresh from the stock API, within a fixed budget of calls per minute.
+ * <p>
+ * Each symbol gets a weight from its reasons to be tracked (live WebSocket subscribers, pending limit
+ * orders, open positions, recent quotes/trades), scaled up by its recent volatility. Every second the
+ * symbols with the highest weight x seconds-since-last-refresh are refreshed, so the budget goes where
+ * staleness costs the most. Symbols with no remaining reason are evicted after an idle period.
+ */
+@Service
+public class AdaptivePollScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePollScheduler.class);
+
+    private static final double SUBSCRIBER_WEIGHT = 4.0;
+    private static final double LIMIT_ORDER_WEIGHT = 3.0;
+    private static final double POSITION_WEIGHT = 1.0;
+    private static final double INTEREST_WEIGHT = 1.0;
+
+    // Absolute log return between refreshes treated as "normal"; higher volatility raises priority up to 4x
+    private static final double REFERENCE_VOLATILITY = 0.001;
+    private static final double MAX_VOLATILITY_BOOST = 3.0;
+    private static final double VOLATILITY_SMOOTHING = 0.2;
+
+    private final RealTimeStockDataService stockDataService;
+    private final OrderRepository orderRepository;
+    private final PositionRepository positionRepository;
+    private final PriceBook priceBook;
+
+    private final double callsPerSecond;
+    private final Duration minRefreshInterval;
+    private final Duration idleEviction;
+    private final Counter dispatchedCounter;
+
+    // Inputs from outside the poll loop
+    private final ConcurrentHashMap<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> pendingLimitOrders = Map.of();
+    private volatile Set<String> heldSymbols = Set.of();
+
+    // Poll-loop state, only touched from the scheduled methods
+    private final Map<String, SymbolState> states = new HashMap<>();
+    private double tokens;
+
+    public AdaptivePollScheduler(RealTimeStockDataService stockDataService,
+                                 OrderRepository orderRepository,
+                                 PositionRepository positionRepository,
+                                 PriceBook priceBook,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${market-data.poll.budget-per-minute:55}") int budgetPerMinute,
+                                 @Value("${market-data.poll.min-refresh-interval:5s}") Duration minRefreshInterval,
+                                 @Value("${market-data.poll.idle-eviction:10m}") Duration idleEviction) {
+        this.stockDataService = stockDataService;
+        this.orderRepository = orderRepository;
+        this.positionRepository = positionRepository;
+        this.priceBook = priceBook;
+        this.callsPerSecond = budgetPerMinute / 60.0;
+        this.minRefreshInterval = minRefreshInterval;
+        this.idleEviction = idleEviction;
+        this.dispatchedCounter = Counter.builder("market-data.poll.dispatched")
+                .description("Symbols refreshed by the adaptive poll scheduler")
+                .register(meterRegistry);
+        meterRegistry.gauge("market-data.poll.tracked-symbols", stockDataService,
+                service -> service.getActiveSymbols().size());
+    }
+
+    // Live subscriber count for a symbol, reported by the WebSocket layer
+    public void updateSubscriberCount(String symbol, int count) {
+        String key = symbol.toUpperCase();
+        if (count > 0) {
+            subscriberCounts.put(key, count);
+            stockDataService.trackSymbol(key);
+        } else {
+            subscriberCounts.remove(key);
+        }
+    }
+
+    @EventListener
+    public void onSubscriberCountChanged(SubscriberCountChangedEvent event) {
+        updateSubscriberCount(event.getSymbol(), event.getCount());
+    }
+
+    // Reload the database-backed reasons to track symbols
+    @Scheduled(fixedDelayString = "${market-data.poll.demand-refresh-ms:30000}")
+    public void refreshDemand() {
+        try {
+            Map<String, Long> pending = new HashMap<>();
+            for (Object[] row : orderRepository.countBySymbol(OrderStatus.PENDING, PriceType.LIMIT)) {
+                pending.merge(((String) row[0]).toUpperCase(), (Long) row[1], Long::sum);
+            }
+            Set<String> held = new HashSet<>();
+            for (String symbol : positionRepository.findHeldSymbols()) {
+                held.add(symbol.toUpperCase());
+            }
+            pendingLimitOrders = pending;
+            heldSymbols = held;
+        } catch (Exception e) {
+            logger.warn("Failed to refresh symbol demand for polling", e);
+        }
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public synchronized void pollTick() {
+        Instant now = Instant.now();
+        Map<String, Instant> interest = stockDataService.getSymbolInterest();
+
+        Set<String> candidates = new HashSet<>(interest.keySet());
+        candidates.addAll(subscriberCounts.keySet());
+        candidates.addAll(pendingLimitOrders.keySet());
+        candidates.addAll(heldSymbols);
+        states.keySet().retainAll(candidates);
+
+        // Cap the saved-up budget so an idle period does not turn into a burst
+        tokens = Math.min(tokens + callsPerSecond, Math.max(1.0, callsPerSecond * 5));
+
+        List<ScoredSymbol> scored = new ArrayList<>();
+        for (String symbol : candidates) {
+            double weight = weight(symbol, interest.get(symbol), now);
+            if (weight <= 0) {
+                states.remove(symbol);
+                if (interest.containsKey(symbol)) {
+                    stockDataService.stopTrackingSymbol(symbol);
+                }
+                continue;
+            }
+            SymbolState state = states.computeIfAbsent(symbol, s -> new SymbolState());
+            Optional<PriceSnapshot> latest = priceBook.get(symbol);
+            latest.ifPresent(state::observe);
+
+            // Prices pushed by a stream or feed count as refreshes, so streamed symbols are not polled
+            Instant lastUpdate = state.lastRefresh;
+            if (latest.isPresent()) {
+                Instant pushed = latest.get().getTimestamp().atZone(ZoneId.systemDefault()).toInstant();
+                if (lastUpdate == null || pushed.isAfter(lastUpdate)) {
+                    lastUpdate = pushed;
+                }
+            }
+            Duration age = lastUpdate == null ? Duration.ofDays(1) : Duration.between(lastUpdate, now);
+            if (age.compareTo(minRefreshInterval) < 0) {
+                continue;
+            }
+            double boost = 1 + Math.min(state.volatility / REFERENCE_VOLATILITY, MAX_VOLATILITY_BOOST);
+            scored.add(new ScoredSymbol(symbol, weight * boost * age.toSeconds()));
+        }
+
+        int slots = (int) Math.floor(tokens);
+        if (slots == 0 || scored.isEmpty()) {
+            return;
+        }
+        List<String> selected = scored.stream()
+                .sorted(Comparator.comparingDouble(ScoredSymbol::getScore).reversed())
+                .limit(slots)
+                .map(ScoredSymbol::getSymbol)
+                .toList();
+
+        selected.forEach(symbol -> states.get(symbol).lastRefresh = now);
+        tokens -= selected.size();
+        dispatchedCounter.increment(selected.size());
+        stockDataService.refreshAndBroadcast(selected);
+    }
+
+    private double weight(String symbol, Instant lastInterest, Instant now) {
+        double weight = 0;
+        int subscribers = subscriberCounts.getOrDefault(symbol, 0);
+        if (subscribers > 0) {
+            weight += SUBSCRIBER_WEIGHT * (1 + Math.log(subscribers));
+        }
+        if (pendingLimitOrders.containsKey(symbol)) {
+            weight += LIMIT_ORDER_WEIGHT;
+        }
+        if (heldSymbols.contains(symbol)) {
+            weight += POSITION_WEIGHT;
+        }
+        if (lastInterest != null && Duration.between(lastInterest, now).compareTo(idleEviction) < 0) {
+            weight += INTEREST_WEIGHT;
+        }
+        return weight;
+    }
+
+    private static class ScoredSymbol {
+        private final String symbol;
+        private final double score;
+
+        ScoredSymbol(String symbol, double score) {
+            this.symbol = symbol;
+            this.score = score;
+        }
+
+        String getSymbol() { return symbol; }
+        double getScore() { return score; }
+    }
+
+    private static class SymbolState {
+        private Instant lastRefresh;
+        private PriceSnapshot lastSeen;
+        // Exponentially weighted mean of |log return| between consecutive price updates
+        private double volatility;
+
+        void observe(PriceSnapshot snapshot) {
+            if (lastSeen != null && snapshot.getTimestamp().equals(lastSeen.getTimestamp())) {
+                return;
+            }
+            BigDecimal price = snapshot.getPrice();
+            if (lastSeen != null && price.signum() > 0 && lastSeen.getPrice().signum() > 0) {
+                double logReturn = Math.abs(Math.log(price.doubleValue() / lastSeen.getPrice().doubleValue()));
+                volatility = VOLATILITY_SMOOTHING * logReturn + (1 - VOLATILITY_SMOOTHING) * volatility;
+            }
+            lastSeen = snapshot;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package rtp.example.rtp.trading;
+
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Compact binary form of price updates for clients that connect with {@code price-format: binary}.
+ * <p>
+ * Layout: version byte, varint update count, varint base timestamp (epoch millis), then per update the
+ * symbol id (see {@link SymbolIds}), sequence number, price and change in 1/10000 units, change percent in
+ * 1/100 units and the timestamp as an offset from the base. Ids, sequences and counts are varints, the other
+ * fields zigzag varints, so a typical update takes 12-16 bytes instead of ~130 bytes of JSON.
+ */
+@Component
+public class BinaryPriceEncoder {
+
+    public static final int VERSION = 1;
+
+    private final SymbolIds symbolIds;
+
+    public BinaryPriceEncoder(SymbolIds symbolIds) {
+        this.symbolIds = symbolIds;
+    }
+
+    public byte[] encode(List<RealTimeStockDataService.PriceUpdateMessage> updates) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + updates.size() * 16);
+        long baseMillis = updates.isEmpty() ? 0 : epochMillis(updates.get(0).getTimestamp());
+        out.write(VERSION);
+        writeVarLong(out, updates.size());
+        writeVarLong(out, baseMillis);
+        for (RealTimeStockDataService.PriceUpdateMessage update : updates) {
+            writeVarLong(out, symbolIds.idOf(update.getSymbol()));
+            writeVarLong(out, update.getSequence());
+            writeVarLong(out, zigzag(scaled(update.getPrice(), 4)));
+            writeVarLong(out, zigzag(scaled(update.getChange(), 4)));
+            writeVarLong(out, zigzag(scaled(update.getChangePercent(), 2)));
+            writeVarLong(out, zigzag(epochMillis(update.getTimestamp()) - baseMillis));
+        }
+        return out.toByteArray();
+    }
+
+    private static long scaled(BigDecimal value, int scale) {
+        return value == null ? 0 : value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    // Timestamps are local wall-clock times; clients get real epoch millis
+    private static long epochMillis(LocalDateTime timestamp) {
+        return timestamp == null ? 0 : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
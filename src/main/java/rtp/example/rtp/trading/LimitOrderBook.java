@@ -0,0 +1,86 @@
+package rtp.example.rtp.trading;
+
+import rtp.example.rtp.order.OrderType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Resting limit orders of one symbol, one price-sorted set per side.
+ * <p>
+ * Buys are kept highest limit first and sells lowest limit first, so the orders a price crosses are always
+ * at the head of their side: a tick pops from the head until it reaches a limit the price has not reached.
+ * Callers synchronize on the book.
+ */
+class LimitOrderBook {
+
+    // Highest limit first; ties in arrival (id) order
+    private final NavigableSet<Resting> buys = new TreeSet<>(
+            Comparator.comparing((Resting r) -> r.limitPrice).reversed().thenComparing(r -> r.orderId));
+    // Lowest limit first
+    private final NavigableSet<Resting> sells = new TreeSet<>(
+            Comparator.comparing((Resting r) -> r.limitPrice).thenComparing(r -> r.orderId));
+    private final Map<Long, Resting> byId = new HashMap<>();
+
+    void add(Long orderId, OrderType side, BigDecimal limitPrice) {
+        remove(orderId);
+        Resting resting = new Resting(orderId, side, limitPrice);
+        byId.put(orderId, resting);
+        sideOf(side).add(resting);
+    }
+
+    void remove(Long orderId) {
+        Resting resting = byId.remove(orderId);
+        if (resting != null) {
+            sideOf(resting.side).remove(resting);
+        }
+    }
+
+    // Remove and return the orders whose limit the price has reached: buys at or above it, sells at or below
+    List<Long> popCrossed(BigDecimal price) {
+        List<Long> crossed = new ArrayList<>();
+        while (!buys.isEmpty() && buys.first().limitPrice.compareTo(price) >= 0) {
+            crossed.add(take(buys));
+        }
+        while (!sells.isEmpty() && sells.first().limitPrice.compareTo(price) <= 0) {
+            crossed.add(take(sells));
+        }
+        return crossed;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    private Long take(NavigableSet<Resting> side) {
+        Resting resting = side.pollFirst();
+        byId.remove(resting.orderId);
+        return resting.orderId;
+    }
+
+    private NavigableSet<Resting> sideOf(OrderType side) {
+        return side == OrderType.BUY ? buys : sells;
+    }
+
+    private static class Resting {
+        private final Long orderId;
+        private final OrderType side;
+        private final BigDecimal limitPrice;
+
+        Resting(Long orderId, OrderType side, BigDecimal limitPrice) {
+            this.orderId = orderId;
+            this.side = side;
+            this.limitPrice = limitPrice;
+        }
+    }
+}
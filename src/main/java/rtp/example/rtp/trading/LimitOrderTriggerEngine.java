@@ -0,0 +1,128 @@
+package rtp.example.rtp.trading;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import rtp.example.rtp.data.PriceBook;
+import rtp.example.rtp.order.Order;
+import rtp.example.rtp.order.OrderChangedEvent;
+import rtp.example.rtp.order.OrderRepository;
+import rtp.example.rtp.order.OrderStatus;
+import rtp.example.rtp.order.PriceType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * In-memory index of pending limit orders that turns price ticks into fills.
+ * <p>
+ * Orders are kept in a {@link LimitOrderBook} per symbol, loaded from the database at startup and kept in
+ * line with {@link OrderChangedEvent}s once their transaction commits. Every tick pops just the orders whose
+ * limit it crossed and queues them for {@link SystemTradingService} to fill, so a tick costs a map lookup
+ * for symbols without orders and does not grow with the number of resting orders.
+ */
+@Component
+public class LimitOrderTriggerEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LimitOrderTriggerEngine.class);
+
+    private final OrderRepository orderRepository;
+    private final PriceBook priceBook;
+    private final ConcurrentHashMap<String, LimitOrderBook> books = new ConcurrentHashMap<>();
+    private final BlockingQueue<Long> triggered = new LinkedBlockingQueue<>();
+    private final Counter triggeredCounter;
+
+    public LimitOrderTriggerEngine(OrderRepository orderRepository, PriceBook priceBook, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.priceBook = priceBook;
+        this.triggeredCounter = Counter.builder("limit-orders.triggered")
+                .description("Limit orders whose limit price was crossed by a tick")
+                .register(meterRegistry);
+        meterRegistry.gauge("limit-orders.resting", books, all -> all.values().stream().mapToInt(book -> {
+            synchronized (book) {
+                return book.size();
+            }
+        }).sum());
+    }
+
+    // Rebuild the books from the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPendingOrders() {
+        List<Order> pending = orderRepository.findByStatusAndPriceType(OrderStatus.PENDING, PriceType.LIMIT);
+        for (Order order : pending) {
+            if (order.getLimitPrice() != null) {
+                add(order);
+            }
+        }
+        logger.info("Loaded {} pending limit orders into the trigger books", pending.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.isRestingLimitOrder()) {
+            String symbol = event.getStockSymbol().toUpperCase();
+            LimitOrderBook book = books.computeIfAbsent(symbol, key -> new LimitOrderBook());
+            synchronized (book) {
+                book.add(event.getOrderId(), event.getOrderType(), event.getLimitPrice());
+            }
+            // A limit the market is already through fills now rather than on the next tick
+            priceBook.get(symbol).ifPresent(latest -> onPrice(symbol, latest.getPrice()));
+        } else {
+            remove(event.getOrderId(), event.getStockSymbol());
+        }
+    }
+
+    // Called for every ingested tick
+    public void onPrice(String symbol, BigDecimal price) {
+        LimitOrderBook book = books.get(symbol);
+        if (book == null || price == null) {
+            return;
+        }
+        List<Long> crossed;
+        synchronized (book) {
+            crossed = book.popCrossed(price);
+        }
+        if (!crossed.isEmpty()) {
+            logger.debug("{} at {} triggered limit orders {}", symbol, price, crossed);
+            triggeredCounter.increment(crossed.size());
+            triggered.addAll(crossed);
+        }
+    }
+
+    // Next triggered order id, waiting for one if none is queued
+    public Long takeTriggered() throws InterruptedException {
+        return triggered.take();
+    }
+
+    // Put back an order that was triggered but could not be filled, e.g. because the price moved back
+    public void restore(Order order) {
+        if (order.getStatus() == OrderStatus.PENDING && order.getPriceType() == PriceType.LIMIT
+                && order.getLimitPrice() != null) {
+            add(order);
+        }
+    }
+
+    private void add(Order order) {
+        LimitOrderBook book = books.computeIfAbsent(order.getStockSymbol().toUpperCase(), symbol -> new LimitOrderBook());
+        synchronized (book) {
+            book.add(order.getId(), order.getOrderType(), order.getLimitPrice());
+        }
+    }
+
+    private void remove(Long orderId, String symbol) {
+        LimitOrderBook book = books.get(symbol.toUpperCase());
+        if (book != null) {
+            synchronized (book) {
+                book.remove(orderId);
+            }
+        }
+    }
+}
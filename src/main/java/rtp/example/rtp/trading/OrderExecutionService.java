@@ -3,24 +3,20 @@ package rtp.example.rtp.trading;
 import jakarta.persistence.OptimisticLockException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import rtp.example.rtp.order.*;
-import rtp.example.rtp.portfolio.Portfolio;
 import rtp.example.rtp.portfolio.PortfolioService;
-import rtp.example.rtp.positions.Position;
 import rtp.example.rtp.positions.PositionService;
-import rtp.example.rtp.stock.Stock;
 import rtp.example.rtp.stock.StockService;
-import rtp.example.rtp.data.StockPrice;
 import rtp.example.rtp.transaction.Transaction;
 import rtp.example.rtp.transaction.TransactionService;
 import rtp.example.rtp.transaction.TransactionType;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDateTime;
-import java.util.Optional;
 
 @Service
 public class OrderExecutionService {
@@ -30,86 +26,118 @@ public class OrderExecutionService {
     private final PositionService positionService;
     private final StockService stockService;
     private final TransactionService transactionService;
-    private final PortfolioCalculationService portfolioCalculationService;
     private final RealTimeStockDataService realTimeStockDataService;
+    private final PortfolioExecutionLanes executionLanes;
+    private final TransactionTemplate transactionTemplate;
 
     public OrderExecutionService(OrderService orderService,
                                  PortfolioService portfolioService,
                                  PositionService positionService,
                                  StockService stockService,
                                  TransactionService transactionService,
-                                 PortfolioCalculationService portfolioCalculationService, RealTimeStockDataService realTimeStockDataService) {
+                                 RealTimeStockDataService realTimeStockDataService,
+                                 PortfolioExecutionLanes executionLanes,
+                                 PlatformTransactionManager transactionManager) {
         this.orderService = orderService;
         this.portfolioService = portfolioService;
         this.positionService = positionService;
         this.stockService = stockService;
         this.transactionService = transactionService;
-        this.portfolioCalculationService = portfolioCalculationService;
         this.realTimeStockDataService = realTimeStockDataService;
+        this.executionLanes = executionLanes;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(OrderExecutionService.class);
 
-    @Transactional
+    // Fills run on the portfolio's execution lane, so two fills for one portfolio never interleave
     public OrderExecutionResult executeOrder(Long orderId) {
         Order order = orderService.getOrder(orderId);
+        return executeOnLane(order, currentMarketPrice(order.getStockSymbol()));
+    }
 
-        if (order.getStatus() != OrderStatus.PENDING) {
-            return new OrderExecutionResult(false, "Order is not in PENDING status");
-        }
+    // Fill at a market price the caller resolved before reaching the lane
+    public OrderExecutionResult executeOrder(Long orderId, BigDecimal marketPrice) {
+        return executeOnLane(orderService.getOrder(orderId), marketPrice);
+    }
 
+    // Resolved off the lane: a stale price book means a blocking upstream fetch, which would hold up every
+    // portfolio sharing the lane. Null if no price is available at all
+    public BigDecimal currentMarketPrice(String symbol) {
+        try {
+            return realTimeStockDataService.getCurrentStockPrice(symbol).getPrice();
+        } catch (Exception e) {
+            // Log error with stack trace when falling back to cached price
+            logger.error("Failed to get real-time price for {}, falling back to cached price", symbol, e);
+        }
         try {
-            // Get current stock price for execution
-            Stock stock = stockService.getStock(order.getStockSymbol());
-            BigDecimal executionPrice = determineExecutionPrice(order, stock.getCurrentPrice());
+            return stockService.getStock(symbol).getCurrentPrice();
+        } catch (RuntimeException e) {
+            logger.warn("No cached price for {}: {}", symbol, e.getMessage());
+            return null;
+        }
+    }
 
-            if (executionPrice == null) {
-                order.setStatus(OrderStatus.CANCELLED);
-                orderService.updateOrderStatus(orderId, OrderStatus.CANCELLED);
-                return new OrderExecutionResult(false, "Order cannot be executed at current market conditions");
+    private OrderExecutionResult executeOnLane(Order order, BigDecimal marketPrice) {
+        return executionLanes.call(order.getPortfolioId(), () -> {
+            try {
+                return transactionTemplate.execute(status -> execute(order.getId(), marketPrice));
+            } catch (OptimisticLockException | ObjectOptimisticLockingFailureException e) {
+                logger.warn("Optimistic lock conflict when executing order {}", order.getId());
+                return new OrderExecutionResult(false, "Order is being processed concurrently. Please try again.");
+            } catch (RuntimeException e) {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    // The fill joined the caller's transaction, which can now only roll back: fail it as a whole
+                    throw e;
+                }
+                // The whole fill rolled back, claim and any cash or shares moved with it; cancel on its own
+                logger.error("Failed to execute order {}", order.getId(), e);
+                transactionTemplate.executeWithoutResult(status -> orderService.cancelFill(order));
+                return new OrderExecutionResult(false, "Error executing order: " + e.getMessage());
             }
+        });
+    }
 
-            // Validate the order can be executed
-            ValidationResult validation = validateOrderExecution(order, executionPrice);
-            if (!validation.isValid()) {
-                order.setStatus(OrderStatus.CANCELLED);
-                orderService.updateOrderStatus(orderId, OrderStatus.CANCELLED);
-                return new OrderExecutionResult(false, validation.getMessage());
-            }
+    private OrderExecutionResult execute(Long orderId, BigDecimal marketPrice) {
+        Order order = orderService.getOrder(orderId);
 
-            // Execute the order
-            executeOrderTransaction(order, executionPrice);
+        if (order.getStatus() != OrderStatus.PENDING) {
+            return new OrderExecutionResult(false, "Order is not in PENDING status");
+        }
 
-            // Update order status
-            order.setStatus(OrderStatus.FILLED);
-            order.setFilledPrice(executionPrice);
-            order.setFilledAt(LocalDateTime.now());
-            orderService.updateOrderStatus(orderId, OrderStatus.FILLED);
+        if (marketPrice == null) {
+            if (order.getPriceType() == PriceType.LIMIT) {
+                // Same as a limit that is not crossed: the order stays pending and goes back to the book
+                return new OrderExecutionResult(false, "No market price available for " + order.getStockSymbol());
+            }
+            throw new IllegalStateException("No market price available for " + order.getStockSymbol());
+        }
+        BigDecimal executionPrice = determineExecutionPrice(order, marketPrice);
 
-            // Recalculate portfolio values
-            portfolioCalculationService.recalculatePortfolio(order.getPortfolioId());
+        if (executionPrice == null) {
+            // Limit not reached at the current price; the order stays pending for the trigger engine
+            return new OrderExecutionResult(false, "Limit price not reached at current market price");
+        }
 
-            return new OrderExecutionResult(true, "Order executed successfully", executionPrice);
+        // Claim the order first, so only one fill can take it out of PENDING
+        if (!orderService.claimFill(order, executionPrice)) {
+            return new OrderExecutionResult(false, "Order is not in PENDING status");
+        }
 
-        } catch (OptimisticLockException ole) {
-            logger.warn("Optimistic lock conflict when executing order {}", orderId);
-            return new OrderExecutionResult(false, "Order is being processed concurrently. Please try again.");
-        } catch (Exception e) {
-            order.setStatus(OrderStatus.CANCELLED);
-            orderService.updateOrderStatus(orderId, OrderStatus.CANCELLED);
-            return new OrderExecutionResult(false, "Error executing order: " + e.getMessage());
+        // Move the cash and shares; a conditional update that changes nothing means they did not cover it,
+        // and nothing has moved yet, so the order can be cancelled in the same transaction
+        String rejection = executeOrderTransaction(order, executionPrice);
+        if (rejection != null) {
+            orderService.cancelFill(order);
+            return new OrderExecutionResult(false, rejection);
         }
+
+        // No revaluation here: at the execution price, cash and positions change by the same amount, so the
+        // portfolio's total value is unchanged by the fill
+        return new OrderExecutionResult(true, "Order executed successfully", executionPrice);
     }
 
     private BigDecimal determineExecutionPrice(Order order, BigDecimal currentMarketPrice) {
-        try {
-            StockPrice realTimePrice = realTimeStockDataService.getCurrentStockPrice(order.getStockSymbol());
-            currentMarketPrice = realTimePrice.getPrice();
-        } catch (Exception e) {
-            // Log error with stack trace when falling back to cached price
-            logger.error("Failed to get real-time price for {}, falling back to cached price", order.getStockSymbol(), e);
-            // fallback to passed currentMarketPrice
-        }
         if (order.getPriceType() == PriceType.MARKET) {
             return currentMarketPrice;
         } else { // LIMIT order
@@ -122,36 +150,20 @@ public class OrderExecutionService {
     }
 
 
-    private ValidationResult validateOrderExecution(Order order, BigDecimal executionPrice) {
-        Portfolio portfolio = portfolioService.getPortfolio(order.getPortfolioId());
-        BigDecimal totalCost = executionPrice.multiply(new BigDecimal(order.getQuantity()));
-
-        if (order.getOrderType() == OrderType.BUY) {
-            // Check if user has enough cash balance
-            if (portfolio.getCashBalance().compareTo(totalCost) < 0) {
-                return new ValidationResult(false, "Insufficient cash balance");
-            }
-        } else { // SELL
-            // Check if user has enough shares to sell
-            Optional<Position> position = positionService.getPositionByPortfolioAndStock(
-                    order.getPortfolioId(), order.getStockSymbol());
-
-            if (position.isEmpty() || position.get().getQuantity() < order.getQuantity()) {
-                return new ValidationResult(false, "Insufficient shares to sell");
-            }
-        }
-
-        return new ValidationResult(true, "Valid");
-    }
-
-    private void executeOrderTransaction(Order order, BigDecimal executionPrice) {
-        Portfolio portfolio = portfolioService.getPortfolio(order.getPortfolioId());
+    // Returns why the fill was rejected, or null once cash, position and the transaction record are written
+    private String executeOrderTransaction(Order order, BigDecimal executionPrice) {
         BigDecimal totalAmount = executionPrice.multiply(new BigDecimal(order.getQuantity()));
 
         if (order.getOrderType() == OrderType.BUY) {
-            executeBuyOrder(order, portfolio, executionPrice, totalAmount);
+            if (!portfolioService.debitCash(order.getPortfolioId(), totalAmount)) {
+                return "Insufficient cash balance";
+            }
+            positionService.addShares(order.getPortfolioId(), order.getStockSymbol(), order.getQuantity(), executionPrice);
         } else {
-            executeSellOrder(order, portfolio, executionPrice, totalAmount);
+            if (!positionService.removeShares(order.getPortfolioId(), order.getStockSymbol(), order.getQuantity())) {
+                return "Insufficient shares to sell";
+            }
+            portfolioService.creditCash(order.getPortfolioId(), totalAmount);
         }
 
         // Create transaction record
@@ -164,63 +176,7 @@ public class OrderExecutionService {
                 executionPrice
         );
         transactionService.createTransaction(transaction);
-    }
-
-    private void executeBuyOrder(Order order, Portfolio portfolio, BigDecimal executionPrice, BigDecimal totalAmount) {
-        // Update cash balance
-        BigDecimal newCashBalance = portfolio.getCashBalance().subtract(totalAmount);
-        portfolio.setCashBalance(newCashBalance);
-        portfolioService.updatePortfolio(portfolio);
-
-        // Update or create position
-        Optional<Position> existingPosition = positionService.getPositionByPortfolioAndStock(
-                order.getPortfolioId(), order.getStockSymbol());
-
-        if (existingPosition.isPresent()) {
-            // Update existing position with average price calculation
-            Position position = existingPosition.get();
-            BigDecimal currentValue = position.getAveragePrice().multiply(new BigDecimal(position.getQuantity()));
-            BigDecimal newValue = executionPrice.multiply(new BigDecimal(order.getQuantity()));
-            BigDecimal totalValue = currentValue.add(newValue);
-
-            int newQuantity = position.getQuantity() + order.getQuantity();
-            BigDecimal newAveragePrice = totalValue.divide(new BigDecimal(newQuantity), 4, RoundingMode.HALF_UP);
-
-            position.setQuantity(newQuantity);
-            position.setAveragePrice(newAveragePrice);
-            positionService.updatePosition(position);
-        } else {
-            // Create new position
-            Position newPosition = new Position(
-                    order.getPortfolioId(),
-                    order.getStockSymbol(),
-                    order.getQuantity(),
-                    executionPrice
-            );
-            positionService.createPosition(newPosition);
-        }
-    }
-
-    private void executeSellOrder(Order order, Portfolio portfolio, BigDecimal executionPrice, BigDecimal totalAmount) {
-        // Update cash balance
-        BigDecimal newCashBalance = portfolio.getCashBalance().add(totalAmount);
-        portfolio.setCashBalance(newCashBalance);
-        portfolioService.updatePortfolio(portfolio);
-
-        // Update position
-        Position position = positionService.getPositionByPortfolioAndStock(
-                order.getPortfolioId(), order.getStockSymbol()).orElseThrow();
-
-        int newQuantity = position.getQuantity() - order.getQuantity();
-
-        if (newQuantity == 0) {
-            // Remove position if quantity becomes zero
-            positionService.deletePosition(position.getId());
-        } else {
-            // Update position quantity (average price remains the same)
-            position.setQuantity(newQuantity);
-            positionService.updatePosition(position);
-        }
+        return null;
     }
 
     // Utility classes
@@ -243,17 +199,4 @@ public class OrderExecutionService {
         public String getMessage() { return message; }
         public BigDecimal getExecutionPrice() { return executionPrice; }
     }
-
-    private static class ValidationResult {
-        private final boolean valid;
-        private final String message;
-
-        public ValidationResult(boolean valid, String message) {
-            this.valid = valid;
-            this.message = message;
-        }
-
-        public boolean isValid() { return valid; }
-        public String getMessage() { return message; }
-    }
 }
\ No newline at end of file
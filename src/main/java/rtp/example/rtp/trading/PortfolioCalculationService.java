@@ -1,6 +1,8 @@
 package rtp.example.rtp.trading;
 
 import org.springframework.stereotype.Service;
+import rtp.example.rtp.data.PriceBook;
+import rtp.example.rtp.data.PriceSnapshot;
 import rtp.example.rtp.portfolio.Portfolio;
 import rtp.example.rtp.portfolio.PortfolioService;
 import rtp.example.rtp.positions.Position;
@@ -18,13 +20,16 @@ public class PortfolioCalculationService {
     private final PortfolioService portfolioService;
     private final PositionService positionService;
     private final StockService stockService;
+    private final PriceBook priceBook;
 
     public PortfolioCalculationService(PortfolioService portfolioService,
                                        PositionService positionService,
-                                       StockService stockService) {
+                                       StockService stockService,
+                                       PriceBook priceBook) {
         this.portfolioService = portfolioService;
         this.positionService = positionService;
         this.stockService = stockService;
+        this.priceBook = priceBook;
     }
 
     public void recalculatePortfolio(Long portfolioId) {
@@ -73,9 +78,9 @@ public class PortfolioCalculationService {
 
     public PositionSummary getPositionSummary(Long positionId) {
         Position position = positionService.getPosition(positionId);
-        Stock stock = stockService.getStock(position.getStockSymbol());
+        BigDecimal currentPrice = getCurrentPrice(position.getStockSymbol());
 
-        BigDecimal currentMarketValue = stock.getCurrentPrice().multiply(new BigDecimal(position.getQuantity()));
+        BigDecimal currentMarketValue = currentPrice.multiply(new BigDecimal(position.getQuantity()));
         BigDecimal costBasis = position.getAveragePrice().multiply(new BigDecimal(position.getQuantity()));
         BigDecimal unrealizedPnL = currentMarketValue.subtract(costBasis);
         BigDecimal percentageReturn = calculatePercentageReturn(currentMarketValue, costBasis);
@@ -85,7 +90,7 @@ public class PortfolioCalculationService {
                 position.getStockSymbol(),
                 position.getQuantity(),
                 position.getAveragePrice(),
-                stock.getCurrentPrice(),
+                currentPrice,
                 costBasis,
                 currentMarketValue,
                 unrealizedPnL,
@@ -97,8 +102,8 @@ public class PortfolioCalculationService {
         BigDecimal total = BigDecimal.ZERO;
         for (Position position : positions) {
             try {
-                Stock stock = stockService.getStock(position.getStockSymbol());
-                BigDecimal positionValue = stock.getCurrentPrice().multiply(new BigDecimal(position.getQuantity()));
+                BigDecimal positionValue = getCurrentPrice(position.getStockSymbol())
+                        .multiply(new BigDecimal(position.getQuantity()));
                 total = total.add(positionValue);
             } catch (Exception e) {
                 total = total.add(position.getCurrentValue());
@@ -107,6 +112,13 @@ public class PortfolioCalculationService {
         return total;
     }
 
+    // Latest price from the in-memory book, falling back to the last price stored on the stock
+    private BigDecimal getCurrentPrice(String symbol) {
+        return priceBook.get(symbol)
+                .map(PriceSnapshot::getPrice)
+                .orElseGet(() -> stockService.getStock(symbol).getCurrentPrice());
+    }
+
     private BigDecimal calculateTotalCostBasis(List<Position> positions) {
         return positions.stream()
                 .map(position -> position.getAveragePrice().multiply(new BigDecimal(position.getQuantity())))
@@ -116,8 +128,8 @@ public class PortfolioCalculationService {
     private void updatePositionCurrentValues(List<Position> positions) {
         for (Position position : positions) {
             try {
-                Stock stock = stockService.getStock(position.getStockSymbol());
-                BigDecimal currentValue = stock.getCurrentPrice().multiply(new BigDecimal(position.getQuantity()));
+                BigDecimal currentValue = getCurrentPrice(position.getStockSymbol())
+                        .multiply(new BigDecimal(position.getQuantity()));
                 position.setCurrentValue(currentValue);
                 positionService.updatePosition(position);
             } catch (Exception e) {
@@ -0,0 +1,95 @@
+package rtp.example.rtp.trading;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer execution lanes for portfolio changes.
+ * <p>
+ * Every portfolio hashes to one of a fixed number of lanes, each a single thread working through its queue,
+ * so fills and trades for one portfolio run strictly one after another while different portfolios spread
+ * over all lanes. Tasks run with the submitter's security context. A task already running on the right lane
+ * (e.g. a trade executing the order it just created) runs inline instead of queueing behind itself.
+ */
+@Component
+public class PortfolioExecutionLanes {
+
+    private static final ThreadLocal<Integer> CURRENT_LANE = new ThreadLocal<>();
+
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+
+    public PortfolioExecutionLanes(MeterRegistry meterRegistry,
+                                   @Value("${trading.execution.lanes:0}") int laneCount) {
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            lanes.add(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    task -> Thread.ofPlatform().name("exec-lane-" + index).daemon().unstarted(() -> {
+                        CURRENT_LANE.set(index);
+                        task.run();
+                    })));
+        }
+        Gauge.builder("trading.execution.queued", lanes,
+                        all -> all.stream().mapToInt(lane -> lane.getQueue().size()).sum())
+                .description("Portfolio tasks waiting for their execution lane")
+                .register(meterRegistry);
+    }
+
+    // Queue a task on the portfolio's lane
+    public <T> CompletableFuture<T> submit(Long portfolioId, Supplier<T> task) {
+        SecurityContext context = SecurityContextHolder.getContext();
+        return CompletableFuture.supplyAsync(() -> {
+            SecurityContextHolder.setContext(context);
+            try {
+                return task.get();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }, lanes.get(laneOf(portfolioId)));
+    }
+
+    // Run a task on the portfolio's lane and wait for its result; exceptions reach the caller unchanged
+    public <T> T call(Long portfolioId, Supplier<T> task) {
+        Integer current = CURRENT_LANE.get();
+        if (current != null && current == laneOf(portfolioId)) {
+            return task.get();
+        }
+        try {
+            return submit(portfolioId, task).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for portfolio " + portfolioId, e);
+        }
+    }
+
+    private int laneOf(Long portfolioId) {
+        return Math.floorMod(Long.hashCode(portfolioId), lanes.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(ThreadPoolExecutor::shutdown);
+    }
+}
@@ -1,22 +1,304 @@
 package rtp.example.rtp.trading;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes price updates to WebSocket clients through a per-symbol conflation stage.
+ * <p>
+ * Updates go to {@code /topic/prices/{symbol}} and to the all-symbols {@code /topic/prices}, each only
+ * when {@link PriceSubscriptionRegistry} has a subscriber for it; symbols nobody watches are skipped
+ * before any conflation work.
+ * <p>
+ * Moves smaller than {@code market-data.broadcast.min-change} from the last sent price are suppressed,
+ * and each symbol is sent at most {@code max-per-second} times. An update arriving inside that window is
+ * held as the symbol's pending value, replacing any older pending one, and is sent by the flush task once
+ * the window has passed, so clients always end up with the latest price. The flush runs on its own thread,
+ * so slow scheduled jobs (retention, archiving, profile fetches) never hold back pending prices.
+ * <p>
+ * With {@code market-data.broadcast.batch=true} the updates released during one flush cycle are sent as a
+ * single JSON array per destination instead of one frame per update. Each batch is serialized once and the
+ * same payload is fanned out to every subscribed session.
+ * <p>
+ * While any session uses the binary format (see {@link PriceStreamFormats}), each message also carries its
+ * {@link BinaryPriceEncoder} form, encoded once alongside the JSON.
+ * <p>
+ * Every sent update carries a per-symbol sequence number, so clients can spot a missed update and
+ * resubscribe to get a fresh snapshot (see {@link PriceSnapshotSender}).
+ */
 @Service
 public class PriceBroadcastService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PriceBroadcastService.class);
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final PriceSubscriptionRegistry subscriptions;
+    private final BigDecimal minChange;
+    private final long minIntervalNanos;
+    private final boolean batched;
+    private final ObjectMapper objectMapper;
+    private final BinaryPriceEncoder binaryEncoder;
+    private final PriceStreamFormats formats;
+    private final long flushIntervalMs;
+    private ScheduledExecutorService flushExecutor;
+
+    private final ConcurrentHashMap<String, SymbolState> symbols = new ConcurrentHashMap<>();
+    // Symbols with a value waiting for their send window
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Batched mode: updates released since the last flush, by destination
+    private Map<String, List<RealTimeStockDataService.PriceUpdateMessage>> outgoing = new LinkedHashMap<>();
+
+    private final Counter sentCounter;
+    private final Counter unwatchedCounter;
+    private final Counter suppressedCounter;
+    private final Counter conflatedCounter;
+    private final Counter framesCounter;
 
     @Autowired
-    public PriceBroadcastService(SimpMessagingTemplate messagingTemplate) {
+    public PriceBroadcastService(SimpMessagingTemplate messagingTemplate,
+                                 PriceSubscriptionRegistry subscriptions,
+                                 ObjectMapper objectMapper,
+                                 BinaryPriceEncoder binaryEncoder,
+                                 PriceStreamFormats formats,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${market-data.broadcast.min-change:0.01}") BigDecimal minChange,
+                                 @Value("${market-data.broadcast.max-per-second:4}") int maxPerSecond,
+                                 @Value("${market-data.broadcast.batch:false}") boolean batched,
+                                 @Value("${market-data.broadcast.flush-interval-ms:50}") long flushIntervalMs) {
         this.messagingTemplate = messagingTemplate;
+        this.subscriptions = subscriptions;
+        this.objectMapper = objectMapper;
+        this.binaryEncoder = binaryEncoder;
+        this.formats = formats;
+        this.minChange = minChange;
+        this.minIntervalNanos = 1_000_000_000L / Math.max(1, maxPerSecond);
+        this.batched = batched;
+        this.flushIntervalMs = flushIntervalMs;
+
+        this.sentCounter = Counter.builder("price-broadcast.updates")
+                .description("Price updates sent to WebSocket clients")
+                .tag("outcome", "sent")
+                .register(meterRegistry);
+        this.unwatchedCounter = Counter.builder("price-broadcast.updates")
+                .description("Price updates skipped because no client is subscribed to the symbol")
+                .tag("outcome", "unwatched")
+                .register(meterRegistry);
+        this.suppressedCounter = Counter.builder("price-broadcast.updates")
+                .description("Price updates dropped because the price moved less than the minimum change")
+                .tag("outcome", "suppressed")
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("price-broadcast.updates")
+                .description("Pending price updates replaced by a newer one before being sent")
+                .tag("outcome", "conflated")
+                .register(meterRegistry);
+        this.framesCounter = Counter.builder("price-broadcast.frames")
+                .description("Price messages published to the broker, one per destination")
+                .tag("mode", batched ? "batched" : "single")
+                .register(meterRegistry);
     }
 
-    // Broadcast live stock price to all connected clients
+    // Offer a live stock price for broadcasting to all connected clients
     public void broadcastPriceUpdate(RealTimeStockDataService.PriceUpdateMessage message) {
-        messagingTemplate.convertAndSend("/topic/prices", message);
+        if (!isWatched(message.getSymbol())) {
+            // Forget what was sent, so a new subscriber's first update is not held back as a small move
+            SymbolState stale = symbols.get(message.getSymbol());
+            if (stale != null) {
+                synchronized (stale) {
+                    stale.lastSentPrice = null;
+                    stale.pending = null;
+                }
+            }
+            unwatchedCounter.increment();
+            return;
+        }
+
+        SymbolState state = symbols.computeIfAbsent(message.getSymbol(), symbol -> new SymbolState());
+        synchronized (state) {
+            if (state.lastSentPrice != null
+                    && message.getPrice().subtract(state.lastSentPrice).abs().compareTo(minChange) < 0) {
+                // Back within a tick of what clients already have; an older pending move is void too
+                if (state.pending != null) {
+                    state.pending = null;
+                    pending.remove(message.getSymbol());
+                }
+                suppressedCounter.increment();
+                return;
+            }
+
+            long now = System.nanoTime();
+            if (state.pending == null && now - state.lastSentNanos >= minIntervalNanos) {
+                send(state, message, now);
+                return;
+            }
+
+            if (state.pending != null) {
+                conflatedCounter.increment();
+            }
+            state.pending = message;
+            pending.add(message.getSymbol());
+        }
+    }
+
+    @PostConstruct
+    void startFlushing() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "price-broadcast-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleAtFixedRate(() -> {
+            try {
+                flushPending();
+            } catch (Exception e) {
+                // An exception would cancel the schedule
+                logger.error("Price broadcast flush failed", e);
+            }
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopFlushing() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+    }
+
+    public void flushPending() {
+        long now = System.nanoTime();
+        for (String symbol : pending) {
+            SymbolState state = symbols.get(symbol);
+            if (state == null) {
+                pending.remove(symbol);
+                continue;
+            }
+            synchronized (state) {
+                if (state.pending == null) {
+                    pending.remove(symbol);
+                } else if (now - state.lastSentNanos >= minIntervalNanos) {
+                    RealTimeStockDataService.PriceUpdateMessage message = state.pending;
+                    state.pending = null;
+                    pending.remove(symbol);
+                    send(state, message, now);
+                }
+            }
+        }
+        if (batched) {
+            flushBatches();
+        }
+    }
+
+    // Publish everything released since the last cycle, one pre-serialized frame per destination
+    private void flushBatches() {
+        Map<String, List<RealTimeStockDataService.PriceUpdateMessage>> batches;
+        synchronized (this) {
+            if (outgoing.isEmpty()) {
+                return;
+            }
+            batches = outgoing;
+            outgoing = new LinkedHashMap<>();
+        }
+        batches.forEach((destination, updates) -> {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(updates);
+                byte[] binary = formats.hasBinarySessions() ? binaryEncoder.encode(updates) : null;
+                messagingTemplate.send(destination, priceMessage(json, binary));
+                framesCounter.increment();
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to serialize {} price updates for {}", updates.size(), destination, e);
+            }
+        });
+    }
+
+    // Sequence of the last update sent for a symbol, 0 if none has been sent
+    public long getSequence(String symbol) {
+        SymbolState state = symbols.get(symbol);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.sequence;
+        }
+    }
+
+    // Pre-serialized message; the binary form rides along in a header for PriceStreamFormats to swap in
+    static Message<byte[]> priceMessage(byte[] json, byte[] binary) {
+        return priceMessage(SimpMessageHeaderAccessor.create(), json, binary);
+    }
+
+    static Message<byte[]> priceMessage(SimpMessageHeaderAccessor headers, byte[] json, byte[] binary) {
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (binary != null) {
+            headers.setHeader(PriceStreamFormats.BINARY_PAYLOAD_HEADER, binary);
+        }
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, headers.getMessageHeaders());
+    }
+
+    private boolean isWatched(String symbol) {
+        return subscriptions.hasSymbolSubscribers(symbol) || subscriptions.hasAllSymbolsSubscribers();
+    }
+
+    // Called with the symbol's state locked, so a symbol's updates go out in order
+    private void send(SymbolState state, RealTimeStockDataService.PriceUpdateMessage update, long now) {
+        RealTimeStockDataService.PriceUpdateMessage message = update.withSequence(++state.sequence);
+        state.lastSentPrice = message.getPrice();
+        state.lastSentNanos = now;
+        List<String> destinations = new ArrayList<>(2);
+        if (subscriptions.hasSymbolSubscribers(message.getSymbol())) {
+            destinations.add(PriceSubscriptionRegistry.topicFor(message.getSymbol()));
+        }
+        if (subscriptions.hasAllSymbolsSubscribers()) {
+            destinations.add(PriceSubscriptionRegistry.ALL_PRICES_TOPIC);
+        }
+        if (batched) {
+            synchronized (this) {
+                destinations.forEach(destination ->
+                        outgoing.computeIfAbsent(destination, d -> new ArrayList<>()).add(message));
+            }
+        } else if (!destinations.isEmpty()) {
+            publish(destinations, message);
+        }
+        sentCounter.increment();
+        logger.debug("Broadcast price update: {} -> {}", message.getSymbol(), message.getPrice());
+    }
+
+    // Serialize once and send the same bytes to each destination
+    private void publish(List<String> destinations, RealTimeStockDataService.PriceUpdateMessage message) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(message);
+            byte[] binary = formats.hasBinarySessions() ? binaryEncoder.encode(List.of(message)) : null;
+            for (String destination : destinations) {
+                messagingTemplate.send(destination, priceMessage(json, binary));
+                framesCounter.increment();
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize price update for {}", message.getSymbol(), e);
+        }
     }
 
     // Send a message to a specific user (optional, for later use)
@@ -27,4 +309,11 @@ public class PriceBroadcastService {
                 orderMessage
         );
     }
+
+    private static class SymbolState {
+        private BigDecimal lastSentPrice;
+        private long lastSentNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+        private RealTimeStockDataService.PriceUpdateMessage pending;
+        private long sequence;
+    }
 }
@@ -0,0 +1,108 @@
+package rtp.example.rtp.trading;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import rtp.example.rtp.data.PriceBook;
+import rtp.example.rtp.data.PriceSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the latest prices from the {@link PriceBook} to a client as soon as it subscribes to a price topic,
+ * so it does not have to wait for the next update or ask the REST API.
+ * <p>
+ * The snapshot goes straight to the subscribing session with a {@code snapshot: true} header: one update for
+ * {@code /topic/prices/{symbol}}, an array of every symbol in the book for {@code /topic/prices}. Each entry
+ * carries the sequence of the last broadcast for its symbol; later updates continue from it, and a client that
+ * sees a sequence jump resubscribes for a new snapshot.
+ */
+@Component
+public class PriceSnapshotSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceSnapshotSender.class);
+
+    public static final String SNAPSHOT_HEADER = "snapshot";
+
+    private final PriceBook priceBook;
+    private final PriceBroadcastService broadcastService;
+    private final ObjectMapper objectMapper;
+    private final BinaryPriceEncoder binaryEncoder;
+    private final PriceStreamFormats formats;
+    private final MessageChannel clientOutboundChannel;
+
+    public PriceSnapshotSender(PriceBook priceBook,
+                               PriceBroadcastService broadcastService,
+                               ObjectMapper objectMapper,
+                               BinaryPriceEncoder binaryEncoder,
+                               PriceStreamFormats formats,
+                               @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel) {
+        this.priceBook = priceBook;
+        this.broadcastService = broadcastService;
+        this.objectMapper = objectMapper;
+        this.binaryEncoder = binaryEncoder;
+        this.formats = formats;
+        this.clientOutboundChannel = clientOutboundChannel;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        // Read in place; see PriceSubscriptionRegistry.onSubscribe
+        MessageHeaders subscribe = event.getMessage().getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(subscribe);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(subscribe);
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(subscribe);
+        if (sessionId == null || subscriptionId == null) {
+            return;
+        }
+
+        try {
+            Object payload;
+            List<RealTimeStockDataService.PriceUpdateMessage> updates = new ArrayList<>();
+            if (PriceSubscriptionRegistry.ALL_PRICES_TOPIC.equals(destination)) {
+                priceBook.getAll().values().forEach(snapshot -> updates.add(toMessage(snapshot)));
+                payload = updates;
+            } else {
+                String symbol = PriceSubscriptionRegistry.symbolOf(destination);
+                PriceSnapshot snapshot = symbol == null ? null : priceBook.get(symbol).orElse(null);
+                if (snapshot == null) {
+                    return;
+                }
+                updates.add(toMessage(snapshot));
+                payload = updates.get(0);
+            }
+
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setSubscriptionId(subscriptionId);
+            headers.setDestination(destination);
+            headers.setNativeHeader(SNAPSHOT_HEADER, "true");
+            byte[] binary = formats.hasBinarySessions() ? binaryEncoder.encode(updates) : null;
+            clientOutboundChannel.send(PriceBroadcastService.priceMessage(headers, objectMapper.writeValueAsBytes(payload), binary));
+            logger.debug("Sent snapshot of {} prices to session {} for {}", updates.size(), sessionId, destination);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize price snapshot for {}", destination, e);
+        }
+    }
+
+    private RealTimeStockDataService.PriceUpdateMessage toMessage(PriceSnapshot snapshot) {
+        return new RealTimeStockDataService.PriceUpdateMessage(
+                snapshot.getSymbol(),
+                snapshot.getPrice(),
+                snapshot.getChangeAmount(),
+                snapshot.getChangePercent(),
+                snapshot.getTimestamp(),
+                broadcastService.getSequence(snapshot.getSymbol())
+        );
+    }
+}
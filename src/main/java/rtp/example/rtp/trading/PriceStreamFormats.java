@@ -0,0 +1,125 @@
+package rtp.example.rtp.trading;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-connection wire format for price messages, chosen with a {@code price-format} header on STOMP CONNECT.
+ * <p>
+ * {@code json} (the default) keeps the JSON payloads. {@code binary} switches price messages to the
+ * {@link BinaryPriceEncoder} layout: raw binary frames on plain WebSocket connections, and base64 text with
+ * a {@code price-encoding: base64} header on SockJS, which cannot carry binary frames. Price messages leave
+ * {@link PriceBroadcastService} with the binary form already attached, so it is encoded once per message
+ * and only swapped in for binary sessions on the way out.
+ */
+@Component
+public class PriceStreamFormats {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceStreamFormats.class);
+
+    public static final String FORMAT_HEADER = "price-format";
+    public static final String ENCODING_HEADER = "price-encoding";
+    // Message header carrying the pre-encoded binary payload from the broadcaster to the outbound channel
+    public static final String BINARY_PAYLOAD_HEADER = "priceBinaryPayload";
+
+    private static final String SOCKJS_ATTRIBUTE = PriceStreamFormats.class.getName() + ".sockJs";
+
+    private enum Format { BINARY, BINARY_BASE64 }
+
+    // Sessions that asked for binary; everyone else gets JSON
+    private final Map<String, Format> binarySessions = new ConcurrentHashMap<>();
+
+    public boolean hasBinarySessions() {
+        return !binarySessions.isEmpty();
+    }
+
+    // Marks SockJS sessions, which only the WebSocket layer can tell apart
+    public WebSocketHandlerDecoratorFactory transportMarker() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession) {
+                    session.getAttributes().put(SOCKJS_ATTRIBUTE, Boolean.TRUE);
+                }
+                super.afterConnectionEstablished(session);
+            }
+        };
+    }
+
+    // Reads the requested format from CONNECT frames
+    public ChannelInterceptor inbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor headers = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (headers != null && StompCommand.CONNECT.equals(headers.getCommand())) {
+                    String requested = headers.getFirstNativeHeader(FORMAT_HEADER);
+                    if ("binary".equalsIgnoreCase(requested)) {
+                        Map<String, Object> attributes = headers.getSessionAttributes();
+                        boolean sockJs = attributes != null && attributes.containsKey(SOCKJS_ATTRIBUTE);
+                        binarySessions.put(headers.getSessionId(), sockJs ? Format.BINARY_BASE64 : Format.BINARY);
+                        logger.debug("Session {} uses binary price messages{}", headers.getSessionId(),
+                                sockJs ? " (base64 over SockJS)" : "");
+                    }
+                }
+                return message;
+            }
+        };
+    }
+
+    // Swaps in the binary payload for sessions that asked for it
+    public ChannelInterceptor outbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                Object binary = message.getHeaders().get(BINARY_PAYLOAD_HEADER);
+                if (!(binary instanceof byte[] payload)
+                        || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+                    return message;
+                }
+                Format format = binarySessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+                if (format == null) {
+                    return message;
+                }
+
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+                headers.removeHeader(BINARY_PAYLOAD_HEADER);
+                if (format == Format.BINARY_BASE64) {
+                    headers.setContentType(MimeTypeUtils.TEXT_PLAIN);
+                    headers.setNativeHeader(ENCODING_HEADER, "base64");
+                    payload = Base64.getEncoder().encode(payload);
+                } else {
+                    headers.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+                }
+                return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+            }
+        };
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        binarySessions.remove(event.getSessionId());
+    }
+}
@@ -0,0 +1,145 @@
+package rtp.example.rtp.trading;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Live subscriber counts for the price topics, kept from STOMP subscribe, unsubscribe and disconnect events.
+ * <p>
+ * Clients subscribe to {@code /topic/prices/{symbol}} for the symbols they show; {@code /topic/prices} still
+ * carries every symbol for clients that want the whole feed. Count changes are published as
+ * {@link SubscriberCountChangedEvent}s so polling and tracking follow what clients are watching.
+ */
+@Component
+public class PriceSubscriptionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceSubscriptionRegistry.class);
+
+    public static final String ALL_PRICES_TOPIC = "/topic/prices";
+    public static final String SYMBOL_TOPIC_PREFIX = ALL_PRICES_TOPIC + "/";
+
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9.:\\-]{1,20}");
+    // Key under which subscriptions to the all-symbols topic are counted
+    private static final String ALL_SYMBOLS = "*";
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Read on every broadcast; written under the registry lock
+    private final ConcurrentHashMap<String, Integer> counts = new ConcurrentHashMap<>();
+    // sessionId -> subscriptionId -> counted key
+    private final Map<String, Map<String, String>> sessions = new HashMap<>();
+
+    public PriceSubscriptionRegistry(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public static String topicFor(String symbol) {
+        return SYMBOL_TOPIC_PREFIX + symbol;
+    }
+
+    public boolean hasSymbolSubscribers(String symbol) {
+        return counts.containsKey(symbol);
+    }
+
+    public boolean hasAllSymbolsSubscribers() {
+        return counts.containsKey(ALL_SYMBOLS);
+    }
+
+    public int getSubscriberCount(String symbol) {
+        return counts.getOrDefault(symbol, 0);
+    }
+
+    // Headers are read in place: the frame's header map may still be changing on the inbound channel,
+    // so copying it with SimpMessageHeaderAccessor.wrap can fail under load
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        MessageHeaders headers = event.getMessage().getHeaders();
+        String key = keyFor(SimpMessageHeaderAccessor.getDestination(headers));
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+        if (key == null || sessionId == null || subscriptionId == null) {
+            return;
+        }
+        synchronized (this) {
+            String previous = sessions.computeIfAbsent(sessionId, id -> new HashMap<>())
+                    .put(subscriptionId, key);
+            if (previous != null) {
+                decrement(previous);
+            }
+            increment(key);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        MessageHeaders headers = event.getMessage().getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        synchronized (this) {
+            Map<String, String> subscriptions = sessions.get(sessionId);
+            if (subscriptions == null) {
+                return;
+            }
+            String key = subscriptions.remove(SimpMessageHeaderAccessor.getSubscriptionId(headers));
+            if (key != null) {
+                decrement(key);
+            }
+            if (subscriptions.isEmpty()) {
+                sessions.remove(sessionId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        synchronized (this) {
+            Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+            if (subscriptions != null) {
+                subscriptions.values().forEach(this::decrement);
+            }
+        }
+    }
+
+    // Counted key for a destination, or null when it is not a price topic
+    private static String keyFor(String destination) {
+        return ALL_PRICES_TOPIC.equals(destination) ? ALL_SYMBOLS : symbolOf(destination);
+    }
+
+    // Symbol of a per-symbol price topic, or null for any other destination
+    static String symbolOf(String destination) {
+        if (destination == null || !destination.startsWith(SYMBOL_TOPIC_PREFIX)) {
+            return null;
+        }
+        // Updates are sent to the upper-case symbol, so other spellings would never receive anything
+        String symbol = destination.substring(SYMBOL_TOPIC_PREFIX.length());
+        return SYMBOL.matcher(symbol).matches() ? symbol : null;
+    }
+
+    private void increment(String key) {
+        changed(key, counts.merge(key, 1, Integer::sum));
+    }
+
+    private void decrement(String key) {
+        Integer count = counts.computeIfPresent(key, (k, c) -> c > 1 ? c - 1 : null);
+        changed(key, count == null ? 0 : count);
+    }
+
+    private void changed(String key, int count) {
+        logger.debug("Price subscribers for {}: {}", key, count);
+        if (!ALL_SYMBOLS.equals(key)) {
+            eventPublisher.publishEvent(new SubscriberCountChangedEvent(this, key, count));
+        }
+    }
+}
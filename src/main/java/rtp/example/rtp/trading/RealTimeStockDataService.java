@@ -1,72 +1,79 @@
 // Fixed and cleaned RealTimeStockDataService:
 // - removed duplicate/malformed code (plan step 1)
 // - validated API response and defaulted nullable numeric fields before saving (plan step 3)
-// - preserved caching, tracking, scheduled updates and cleanup (steps 2,4,5)
+// - preserved caching, tracking and scheduled updates (steps 2,4,5); history retention lives in PriceHistoryRetention
 package rtp.example.rtp.trading;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.context.event.ContextRefreshedEvent;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import rtp.example.rtp.config.StockDataConfig;
 import rtp.example.rtp.stock.Stock;
 import rtp.example.rtp.stock.StockService;
 import rtp.example.rtp.common.exception.StockDataException;
+import rtp.example.rtp.data.CandleAggregator;
+import rtp.example.rtp.data.PriceBook;
+import rtp.example.rtp.data.PriceSnapshot;
 import rtp.example.rtp.data.StockPrice;
-import rtp.example.rtp.data.StockPriceRepository;
+import rtp.example.rtp.data.TickWriteBuffer;
+import rtp.example.rtp.data.provider.MarketDataProvider;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 @Service
 public class RealTimeStockDataService {
 
     private static final Logger logger = LoggerFactory.getLogger(RealTimeStockDataService.class);
 
-    @Value("${stock.api.key}")
-    private String apiKey;
-
-    @Value("${stock.api.url}")
-    private String apiUrl;
-
     private final StockService stockService;
-    private final StockPriceRepository stockPriceRepository;
-    private final RestTemplate restTemplate;
-
-    // Track active symbols that need real-time update
-    private final Set<String> activeSymbols = ConcurrentHashMap.newKeySet();
-
-    // API response DTO mapping
-    private static class StockApiResponse {
-        @JsonProperty("c")
-        private BigDecimal currentPrice;
-
-        @JsonProperty("d")
-        private BigDecimal change;
-
-        @JsonProperty("dp")
-        private BigDecimal changePercent;
-
-        @JsonProperty("v")
-        private Long volume;
-
-        public BigDecimal getCurrentPrice() { return currentPrice; }
-        public BigDecimal getChange() { return change; }
-        public BigDecimal getChangePercent() { return changePercent; }
-        public Long getVolume() { return volume; }
-    }
+    private final MarketDataProvider marketDataProvider;
+    private final PriceBook priceBook;
+    private final TickWriteBuffer tickWriteBuffer;
+    private final CandleAggregator candleAggregator;
+    private final LimitOrderTriggerEngine limitOrderTriggers;
+    private final Cache<Object, Object> quoteCache;
+    // Book prices older than the quote cache's refresh-after are refetched from the API, so a refresh
+    // fetches a new price instead of storing the snapshot it was meant to replace
+    private final Duration maxPriceAge;
+
+    // Polling runs on virtual threads; the semaphore caps concurrent requests to the provider
+    private final ExecutorService pollExecutor;
+    private final Semaphore pollPermits;
+    private final Duration pollCycleTimeout;
+
+    // Track active symbols that need real-time update, with the last time anyone asked for them
+    private final ConcurrentHashMap<String, Instant> activeSymbols = new ConcurrentHashMap<>();
+
+    // Upstream quote fetches in progress; concurrent callers for a symbol join the same fetch
+    private final ConcurrentHashMap<String, CompletableFuture<StockPrice>> inFlightFetches = new ConcurrentHashMap<>();
+    private final Counter upstreamFetchCounter;
+    private final Counter coalescedFetchCounter;
 
     public static class PriceUpdateMessage {
         private String symbol;
@@ -74,14 +81,26 @@ public class RealTimeStockDataService {
         private BigDecimal change;
         private BigDecimal changePercent;
         private LocalDateTime timestamp;
+        // Per-symbol broadcast sequence, assigned by PriceBroadcastService; 0 until sent
+        private long sequence;
 
         public PriceUpdateMessage(String symbol, BigDecimal price, BigDecimal change,
                                   BigDecimal changePercent, LocalDateTime timestamp) {
+            this(symbol, price, change, changePercent, timestamp, 0);
+        }
+
+        public PriceUpdateMessage(String symbol, BigDecimal price, BigDecimal change,
+                                  BigDecimal changePercent, LocalDateTime timestamp, long sequence) {
             this.symbol = symbol;
             this.price = price;
             this.change = change;
             this.changePercent = changePercent;
             this.timestamp = timestamp;
+            this.sequence = sequence;
+        }
+
+        public PriceUpdateMessage withSequence(long sequence) {
+            return new PriceUpdateMessage(symbol, price, change, changePercent, timestamp, sequence);
         }
 
         public String getSymbol() { return symbol; }
@@ -89,63 +108,71 @@ public class RealTimeStockDataService {
         public BigDecimal getChange() { return change; }
         public BigDecimal getChangePercent() { return changePercent; }
         public LocalDateTime getTimestamp() { return timestamp; }
-    }
-
-    // API response DTO for company profile
-    private static class CompanyProfileResponse {
-        @JsonProperty("name")
-        private String name;
-
-        @JsonProperty("ticker")
-        private String ticker;
-
-        public String getName() { return name; }
-        public String getTicker() { return ticker; }
-    }
-
-    // Fetch company name from Finnhub (with caching to avoid excessive API calls.)
-    public String getCompanyName(String symbol) {
-        try {
-            String url = String.format("%s/stock/profile2?symbol=%s&token=%s",
-                    apiUrl, symbol.toUpperCase(), apiKey);
-
-            CompanyProfileResponse response = restTemplate.getForObject(url, CompanyProfileResponse.class);
-
-            if (response != null && response.getName() != null && !response.getName().isEmpty()) {
-                logger.debug("Fetched company name for {}: {}", symbol, response.getName());
-                return response.getName();
-            } else {
-                logger.warn("No company name found for symbol {}, using symbol as fallback", symbol);
-                return symbol.toUpperCase();
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to fetch company name for symbol {}, using symbol as fallback", symbol, e);
-            return symbol.toUpperCase();
-        }
+        public long getSequence() { return sequence; }
     }
 
     // Constructor (step 1)
     @Autowired
     public RealTimeStockDataService(StockService stockService,
-                                    StockPriceRepository stockPriceRepository,
-                                    RestTemplate restTemplate) {
+                                    MarketDataProvider marketDataProvider,
+                                    PriceBook priceBook,
+                                    TickWriteBuffer tickWriteBuffer,
+                                    CandleAggregator candleAggregator,
+                                    LimitOrderTriggerEngine limitOrderTriggers,
+                                    CacheManager cacheManager,
+                                    MeterRegistry meterRegistry,
+                                    @Qualifier("marketDataPollExecutor") ExecutorService pollExecutor,
+                                    @Value("${market-data.poll.max-concurrency:50}") int pollMaxConcurrency,
+                                    @Value("${market-data.poll.cycle-timeout:50s}") Duration pollCycleTimeout,
+                                    @Value("${stock.price-cache.refresh-after:20s}") Duration maxPriceAge) {
         this.stockService = stockService;
-        this.stockPriceRepository = stockPriceRepository;
-        this.restTemplate = restTemplate;
+        this.marketDataProvider = marketDataProvider;
+        this.priceBook = priceBook;
+        this.tickWriteBuffer = tickWriteBuffer;
+        this.candleAggregator = candleAggregator;
+        this.limitOrderTriggers = limitOrderTriggers;
+        this.quoteCache = nativeCache(cacheManager);
+        this.maxPriceAge = maxPriceAge;
+        this.pollExecutor = pollExecutor;
+        this.pollPermits = new Semaphore(pollMaxConcurrency);
+        this.pollCycleTimeout = pollCycleTimeout;
+        this.upstreamFetchCounter = Counter.builder("stock.quote.fetches")
+                .description("Quote requests that went to the stock API")
+                .tag("outcome", "upstream")
+                .register(meterRegistry);
+        this.coalescedFetchCounter = Counter.builder("stock.quote.fetches")
+                .description("Quote requests that joined an in-flight fetch instead of calling the stock API")
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+        meterRegistry.gauge("stock.quote.fetches.in-flight", inFlightFetches, ConcurrentHashMap::size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<Object, Object> nativeCache(CacheManager cacheManager) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(StockDataConfig.STOCK_PRICE_CACHE);
+        return cache != null && cache.getNativeCache() instanceof Cache<?, ?> caffeine
+                ? (Cache<Object, Object>) caffeine : null;
     }
 
-    // Get current stock price with caching (30 second TTL) - step 2
-    @Cacheable(value = "stock-prices", key = "#symbol")
+    // Get current stock price with caching (TTL and refresh-ahead configured in StockDataConfig) - step 2
+    // Keyed by the upper-case symbol, as the price book is, so "aapl" and "AAPL" share one entry and pushed
+    // ticks replace it
+    @Cacheable(value = StockDataConfig.STOCK_PRICE_CACHE, key = "#symbol.toUpperCase()")
     public StockPrice getCurrentStockPrice(String symbol) {
+        return loadCurrentStockPrice(symbol);
+    }
+
+    // Uncached lookup, also used by the cache to load and refresh entries
+    public StockPrice loadCurrentStockPrice(String symbol) {
         try {
-            Optional<StockPrice> recentPrice = stockPriceRepository.findLatestBySymbol(symbol);
-            if (recentPrice.isPresent() &&
-                    recentPrice.get().getTimestamp().isAfter(LocalDateTime.now().minusSeconds(30))) {
+            // Latest price comes from the in-memory book, never from stock_prices
+            Optional<PriceSnapshot> recentPrice = priceBook.getFresh(symbol, maxPriceAge);
+            if (recentPrice.isPresent()) {
                 logger.debug("Returning cached price for symbol {}", symbol);
-                return recentPrice.get();
+                return recentPrice.get().toStockPrice();
             } else {
                 logger.warn("Cached price for symbol {} is stale or missing, fetching fresh data", symbol);
-                return fetchAndUpdateStockPrice(symbol);
+                return fetchAndUpdateStockPrice(symbol, true);
             }
         } catch (Exception e) {
             logger.error("Failed to get current stock price for {}", symbol, e);
@@ -155,38 +182,57 @@ public class RealTimeStockDataService {
 
     @Autowired
     private PriceBroadcastService priceBroadcastService;
-    // Fetch from external API, persist, update Stock entity (steps 3-4)
-    private StockPrice fetchAndUpdateStockPrice(String symbol) {
-        try {
-            String url = String.format("%s/quote?symbol=%s&token=%s", apiUrl, symbol, apiKey);
-            StockApiResponse response = restTemplate.getForObject(url, StockApiResponse.class);
 
-            if (response == null || response.getCurrentPrice() == null) {
-                throw new StockDataException("Invalid response from stock API for " + symbol);
+    // Single-flight wrapper: the first caller for a symbol fetches, concurrent callers wait for its result.
+    // With onlyIfStale the leader re-checks the price book first, in case a fetch just finished.
+    private StockPrice fetchAndUpdateStockPrice(String symbol, boolean onlyIfStale) {
+        String key = symbol.toUpperCase();
+        CompletableFuture<StockPrice> flight = new CompletableFuture<>();
+        CompletableFuture<StockPrice> existing = inFlightFetches.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            coalescedFetchCounter.increment();
+            logger.debug("Joining in-flight price fetch for {}", key);
+            try {
+                return PriceSnapshot.of(existing.join()).toStockPrice();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new StockDataException("Failed to fetch price for " + symbol, e.getCause());
             }
+        }
 
-            // Default nullable numeric fields to safe values (plan step 3)
-            BigDecimal change = response.getChange() != null ? response.getChange() : BigDecimal.ZERO;
-            BigDecimal changePercent = response.getChangePercent() != null ? response.getChangePercent() : BigDecimal.ZERO;
-            Long volume = response.getVolume() != null ? response.getVolume() : 0L;
+        try {
+            Optional<PriceSnapshot> fresh = onlyIfStale ? priceBook.getFresh(key, maxPriceAge) : Optional.empty();
+            StockPrice stockPrice;
+            if (fresh.isPresent()) {
+                stockPrice = fresh.get().toStockPrice();
+            } else {
+                upstreamFetchCounter.increment();
+                stockPrice = fetchFromApi(symbol);
+            }
+            flight.complete(stockPrice);
+            return stockPrice;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightFetches.remove(key, flight);
+        }
+    }
 
-            // Create new StockPrice record
-            StockPrice stockPrice = new StockPrice(
-                    symbol,
-                    response.getCurrentPrice(),
-                    change,
-                    changePercent,
-                    volume,
-                    "FINNHUB"
-            );
+    // Fetch from the market data provider, persist, update Stock entity (steps 3-4)
+    private StockPrice fetchFromApi(String symbol) {
+        try {
+            StockPrice stockPrice = marketDataProvider.fetchQuote(symbol);
 
-            // Save price history
-            stockPriceRepository.save(stockPrice);
+            ingest(stockPrice);
 
             // Update Stock entity with latest price (if present in DB)
             try {
                 Stock stock = stockService.getStock(symbol);
-                stock.setCurrentPrice(response.getCurrentPrice());
+                stock.setCurrentPrice(stockPrice.getPrice());
                 stock.setLastUpdated(LocalDateTime.now());
                 stockService.updateStock(stock);
             } catch (RuntimeException e) {
@@ -194,7 +240,7 @@ public class RealTimeStockDataService {
                 logger.debug("Stock {} not found in DB to update current price; will skip update.", symbol);
             }
 
-            logger.debug("Updated price for {}: {}", symbol, response.getCurrentPrice());
+            logger.debug("Updated price for {}: {}", symbol, stockPrice.getPrice());
             return stockPrice;
 
         } catch (StockDataException e) {
@@ -206,11 +252,46 @@ public class RealTimeStockDataService {
         }
     }
 
-    // Add symbol to active tracking
+    // Ingest a tick pushed by a streaming source: queue history, update the price book, broadcast
+    public void recordTick(StockPrice stockPrice) {
+        PriceSnapshot latest = ingest(stockPrice);
+        if (latest.getTimestamp().equals(stockPrice.getTimestamp())) {
+            // Pushed prices replace cached quotes right away instead of waiting for the cache TTL
+            // Only replaces present entries; Spring's get() on a loading cache would load missing ones
+            if (quoteCache != null) {
+                quoteCache.asMap().replace(latest.getSymbol(), latest.toStockPrice());
+            }
+            broadcast(stockPrice);
+        }
+    }
+
+    // Every tick, polled or pushed: queue history for batched writing, update candles, publish to readers,
+    // trigger crossed limit orders
+    private PriceSnapshot ingest(StockPrice stockPrice) {
+        tickWriteBuffer.enqueue(stockPrice);
+        candleAggregator.onTick(stockPrice);
+        PriceSnapshot latest = priceBook.update(PriceSnapshot.of(stockPrice));
+        limitOrderTriggers.onPrice(latest.getSymbol(), latest.getPrice());
+        return latest;
+    }
+
+    private void broadcast(StockPrice stockPrice) {
+        PriceUpdateMessage message = new PriceUpdateMessage(
+                stockPrice.getSymbol(),
+                stockPrice.getPrice(),
+                stockPrice.getChangeAmount(),
+                stockPrice.getChangePercent(),
+                stockPrice.getTimestamp()
+        );
+        priceBroadcastService.broadcastPriceUpdate(message);
+    }
+
+    // Add symbol to active tracking (or refresh its last-interest time)
     public void trackSymbol(String symbol) {
         if (symbol != null) {
-            activeSymbols.add(symbol.toUpperCase());
-            logger.info("Now tracking symbol: {}", symbol.toUpperCase());
+            if (activeSymbols.put(symbol.toUpperCase(), Instant.now()) == null) {
+                logger.info("Now tracking symbol: {}", symbol.toUpperCase());
+            }
         }
     }
 
@@ -224,44 +305,20 @@ public class RealTimeStockDataService {
 
     // Get all actively tracked symbols
     public Set<String> getActiveSymbols() {
-        return Set.copyOf(activeSymbols);
+        return Set.copyOf(activeSymbols.keySet());
     }
 
-    // Scheduled update for all active symbols (every 30 seconds) - step 5
-    @Scheduled(fixedRate = 60000)
-    @Async
-    public void updateActiveStockPrices() {
-        logger.info("Running scheduled price update task... Active symbols: {}", activeSymbols.size());
-        if (activeSymbols.isEmpty()) {
-            return;
-        }
-
-        logger.info("Updating prices for {} active symbols", activeSymbols.size());
+    // Tracked symbols with the last time they were quoted or traded
+    public Map<String, Instant> getSymbolInterest() {
+        return Map.copyOf(activeSymbols);
+    }
 
-        activeSymbols.parallelStream().forEach(symbol -> {
-            try {
-                StockPrice updatedPrice = fetchAndUpdateStockPrice(symbol);
-
-                // Build the message to broadcast
-                PriceUpdateMessage message = new PriceUpdateMessage(
-                        updatedPrice.getSymbol(),
-                        updatedPrice.getPrice(),
-                        updatedPrice.getChangeAmount(),
-                        updatedPrice.getChangePercent(),
-                        updatedPrice.getTimestamp()
-                );
-
-                // Log before broadcasting
-                logger.info("Broadcasting live update: {} -> {}",
-                        message.getSymbol(), message.getPrice());
-
-                // Send to WebSocket clients
-                priceBroadcastService.broadcastPriceUpdate(message);
-
-            } catch (Exception e) {
-                logger.warn("Failed to update price for symbol: {}", symbol, e);
-            }
-        });
+    // Refresh the given symbols in the background and broadcast each new price as it arrives.
+    // Scheduling (which symbols, how often) is decided by AdaptivePollScheduler.
+    public CompletableFuture<Void> refreshAndBroadcast(Collection<String> symbols) {
+        // Sent to WebSocket clients through PriceBroadcastService's conflation stage
+        List<CompletableFuture<Void>> fetches = startRefresh(symbols, this::broadcast);
+        return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new));
     }
 
 
@@ -269,28 +326,54 @@ public class RealTimeStockDataService {
     public void updateMultipleStockPrices(Set<String> symbols) {
         if (symbols == null || symbols.isEmpty()) return;
         symbols.forEach(this::trackSymbol);
-        symbols.parallelStream().forEach(symbol -> {
-            try {
-                fetchAndUpdateStockPrice(symbol);
-            } catch (Exception e) {
-                logger.error("Failed to update price for {}", symbol, e);
-            }
-        });
+        refreshPrices(symbols, updatedPrice -> { });
     }
 
-    @EventListener(ContextRefreshedEvent.class)
-    @Transactional
-    public void cleanupOnStartUp() {
-        cleanupOldPriceData();
+    // Fetch all symbols concurrently on the poll executor and wait up to the cycle timeout.
+    // Fetches still running after the timeout finish in the background but are not waited for.
+    private void refreshPrices(Collection<String> symbols, Consumer<StockPrice> onUpdated) {
+        List<CompletableFuture<Void>> fetches = startRefresh(symbols, onUpdated);
+
+        try {
+            CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new))
+                    .get(pollCycleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            long pending = fetches.stream().filter(f -> !f.isDone()).count();
+            logger.warn("Price refresh exceeded {}: {} of {} symbols still pending", pollCycleTimeout, pending, fetches.size());
+        } catch (ExecutionException e) {
+            logger.warn("Price refresh failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    @Transactional
-    public void cleanupOldPriceData() {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(14);
-        List<String> symbols = stockPriceRepository.findAllUniqueSymbols();
+    private List<CompletableFuture<Void>> startRefresh(Collection<String> symbols, Consumer<StockPrice> onUpdated) {
+        List<CompletableFuture<Void>> fetches = new ArrayList<>(symbols.size());
         for (String symbol : symbols) {
-            stockPriceRepository.deleteBySymbolAndTimestampBefore(symbol, cutoff);
+            fetches.add(CompletableFuture.runAsync(() -> {
+                StockPrice updatedPrice = refreshWithPermit(symbol);
+                if (updatedPrice != null) {
+                    onUpdated.accept(updatedPrice);
+                }
+            }, pollExecutor));
+        }
+        return fetches;
+    }
+
+    private StockPrice refreshWithPermit(String symbol) {
+        try {
+            pollPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            return fetchAndUpdateStockPrice(symbol, false);
+        } catch (Exception e) {
+            logger.warn("Failed to update price for symbol: {}", symbol, e);
+            return null;
+        } finally {
+            pollPermits.release();
         }
-        logger.info("Cleaned up stock price data older than {}", cutoff);
     }
 }
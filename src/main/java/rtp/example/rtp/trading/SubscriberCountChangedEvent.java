@@ -0,0 +1,23 @@
+package rtp.example.rtp.trading;
+
+import org.springframework.context.ApplicationEvent;
+
+// Published by PriceSubscriptionRegistry whenever the number of live subscribers to a symbol's topic changes
+public class SubscriberCountChangedEvent extends ApplicationEvent {
+    private final String symbol;
+    private final int count;
+
+    public SubscriberCountChangedEvent(Object source, String symbol, int count) {
+        super(source);
+        this.symbol = symbol;
+        this.count = count;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,38 @@
+package rtp.example.rtp.trading;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interned symbol ids for the binary price format; ids count up from 0 and never change while the app runs
+@Component
+public class SymbolIds {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (symbols) {
+            return ids.computeIfAbsent(symbol, s -> {
+                symbols.add(s);
+                return symbols.size() - 1;
+            });
+        }
+    }
+
+    // Symbols with id >= fromId, in id order
+    public List<String> symbolsFrom(int fromId) {
+        synchronized (symbols) {
+            if (fromId >= symbols.size()) {
+                return List.of();
+            }
+            return List.copyOf(symbols.subList(Math.max(0, fromId), symbols.size()));
+        }
+    }
+}
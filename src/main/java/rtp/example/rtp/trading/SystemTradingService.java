@@ -1,20 +1,32 @@
 package rtp.example.rtp.trading;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import rtp.example.rtp.order.*;
-import rtp.example.rtp.common.exception.StockDataException;
-import rtp.example.rtp.data.StockPrice;
+import rtp.example.rtp.portfolio.Portfolio;
+import rtp.example.rtp.portfolio.PortfolioRepository;
+import rtp.example.rtp.user.User;
+import rtp.example.rtp.user.UserRepository;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
- * System-level service for background tasks that operate without user context.
- * This service directly accesses repositories to bypass user-level security checks.
+ * System-level service for background tasks that operate without a user request.
+ * <p>
+ * Fills the limit orders {@link LimitOrderTriggerEngine} triggers: a dedicated thread takes each one and
+ * hands it to its portfolio's {@link PortfolioExecutionLanes execution lane}, so fills for different
+ * portfolios run in parallel. Each fill runs as the order's owner, so it goes through the same ownership
+ * checks as a fill the user asked for; an order that could not be filled and is still pending goes back
+ * into the trigger book.
  */
 @Service
 public class SystemTradingService {
@@ -22,85 +34,92 @@ public class SystemTradingService {
     private static final Logger logger = LoggerFactory.getLogger(SystemTradingService.class);
 
     private final OrderRepository orderRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final UserRepository userRepository;
     private final OrderExecutionService orderExecutionService;
-    private final RealTimeStockDataService realTimeStockDataService;
+    private final LimitOrderTriggerEngine triggerEngine;
+    private final PortfolioExecutionLanes executionLanes;
+
+    private volatile Thread filler;
 
     public SystemTradingService(OrderRepository orderRepository,
+                                PortfolioRepository portfolioRepository,
+                                UserRepository userRepository,
                                 OrderExecutionService orderExecutionService,
-                                RealTimeStockDataService realTimeStockDataService) {
+                                LimitOrderTriggerEngine triggerEngine,
+                                PortfolioExecutionLanes executionLanes) {
         this.orderRepository = orderRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.userRepository = userRepository;
         this.orderExecutionService = orderExecutionService;
-        this.realTimeStockDataService = realTimeStockDataService;
+        this.triggerEngine = triggerEngine;
+        this.executionLanes = executionLanes;
     }
 
-    /**
-     * Background task to process pending limit orders.
-     * Runs every 30 seconds without user authentication context.
-     */
-    @Scheduled(fixedRate = 60000)
-    @Async
-    public void processPendingLimitOrders() {
-        try {
-            // Direct repository access - bypasses user security
-            List<Order> pendingLimitOrders = orderRepository.findByStatus(OrderStatus.PENDING);
-
-            if (pendingLimitOrders.isEmpty()) {
-                return;
-            }
-
-            logger.info("Processing {} pending limit orders", pendingLimitOrders.size());
+    @EventListener(ApplicationReadyEvent.class)
+    public void startFilling() {
+        filler = Thread.ofPlatform().name("limit-order-fills").daemon().start(this::fillTriggeredOrders);
+    }
 
-            for (Order order : pendingLimitOrders) {
-                if (order.getPriceType() != PriceType.LIMIT) {
-                    continue;
-                }
+    @PreDestroy
+    public void stopFilling() {
+        Thread current = filler;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
 
-                try {
-                    processLimitOrder(order);
-                } catch (Exception e) {
-                    logger.error("Error processing limit order ID {}: {}",
-                            order.getId(), e.getMessage(), e);
-                }
+    private void fillTriggeredOrders() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                fillLimitOrder(triggerEngine.takeTriggered());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Error in limit order fill loop: {}", e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("Error in processPendingLimitOrders: {}", e.getMessage(), e);
         }
     }
 
-    private void processLimitOrder(Order order) {
-        try {
-            // Fetch current real-time price
-            StockPrice currentPrice = realTimeStockDataService.getCurrentStockPrice(order.getStockSymbol());
-            BigDecimal marketPrice = currentPrice.getPrice();
-
-            boolean shouldExecute = shouldExecuteLimitOrder(order, marketPrice);
-
-            if (shouldExecute) {
-                OrderExecutionService.OrderExecutionResult result =
-                        orderExecutionService.executeOrder(order.getId());
-
-                if (result.isSuccess()) {
-                    logger.info("Successfully executed limit order ID {} at price {}",
-                            order.getId(), marketPrice);
-                } else {
-                    logger.warn("Failed to execute limit order ID {}: {}",
-                            order.getId(), result.getMessage());
-                }
-            }
-        } catch (StockDataException e) {
-            logger.warn("Could not fetch price for {} when processing order {}: {}",
-                    order.getStockSymbol(), order.getId(), e.getMessage());
+    private void fillLimitOrder(Long orderId) {
+        Optional<Order> triggered = orderRepository.findById(orderId);
+        if (triggered.isEmpty() || triggered.get().getStatus() != OrderStatus.PENDING) {
+            return;
         }
+        Order order = triggered.get();
+        // Resolved here rather than on the lane; a tick just triggered the order, so this is a price book hit
+        BigDecimal marketPrice = orderExecutionService.currentMarketPrice(order.getStockSymbol());
+
+        executionLanes.submit(order.getPortfolioId(),
+                        () -> runAsOwner(order, () -> orderExecutionService.executeOrder(orderId, marketPrice)))
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        logger.error("Error processing limit order ID {}: {}", orderId, error.getMessage(), error);
+                    } else if (result.isSuccess()) {
+                        logger.info("Successfully executed limit order ID {} at price {}",
+                                orderId, result.getExecutionPrice());
+                    } else {
+                        logger.warn("Failed to execute limit order ID {}: {}", orderId, result.getMessage());
+                    }
+                    // Still pending (e.g. the price moved back before the fill): wait for the next crossing
+                    orderRepository.findById(orderId).ifPresent(triggerEngine::restore);
+                });
     }
 
-    private boolean shouldExecuteLimitOrder(Order order, BigDecimal marketPrice) {
-        if (order.getOrderType() == OrderType.BUY) {
-            // For limit buy: execute if market price <= limit price
-            return marketPrice.compareTo(order.getLimitPrice()) <= 0;
-        } else if (order.getOrderType() == OrderType.SELL) {
-            // For limit sell: execute if market price >= limit price
-            return marketPrice.compareTo(order.getLimitPrice()) >= 0;
+    // Run with the order owner's authentication, as if they had asked for the fill themselves
+    private <T> T runAsOwner(Order order, Supplier<T> action) {
+        Portfolio portfolio = portfolioRepository.findById(order.getPortfolioId())
+                .orElseThrow(() -> new IllegalStateException("Portfolio not found for order " + order.getId()));
+        User owner = userRepository.findById(portfolio.getUserId())
+                .orElseThrow(() -> new IllegalStateException("Owner not found for order " + order.getId()));
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(owner, null, owner.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+        try {
+            return action.get();
+        } finally {
+            SecurityContextHolder.clearContext();
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -4,13 +4,15 @@ import com.fasterxml.jackson.databind.JsonNode;
 import rtp.example.rtp.stock.StockRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import rtp.example.rtp.order.*;
 import rtp.example.rtp.portfolio.Portfolio;
 import rtp.example.rtp.portfolio.PortfolioService;
 import rtp.example.rtp.positions.Position;
 import rtp.example.rtp.positions.PositionService;
+import rtp.example.rtp.stock.CompanyProfileService;
 import rtp.example.rtp.stock.Stock;
 import rtp.example.rtp.stock.StockService;
 import rtp.example.rtp.data.StockPrice;
@@ -29,7 +31,9 @@ public class TradingService {
     private final StockService stockService;
     private final RealTimeStockDataService realTimeStockDataService;
     private final StockRepository stockRepository;
-
+    private final CompanyProfileService companyProfileService;
+    private final PortfolioExecutionLanes executionLanes;
+    private final TransactionTemplate newTransaction;
 
     public TradingService(OrderService orderService,
                           OrderExecutionService orderExecutionService,
@@ -37,7 +41,10 @@ public class TradingService {
                           PortfolioCalculationService portfolioCalculationService,
                           PositionService positionService,
                           StockService stockService,
-                          RealTimeStockDataService realTimeStockDataService, StockRepository stockRepository) {
+                          RealTimeStockDataService realTimeStockDataService, StockRepository stockRepository,
+                          CompanyProfileService companyProfileService,
+                          PortfolioExecutionLanes executionLanes,
+                          PlatformTransactionManager transactionManager) {
         this.orderService = orderService;
         this.orderExecutionService = orderExecutionService;
         this.portfolioService = portfolioService;
@@ -46,17 +53,31 @@ public class TradingService {
         this.stockService = stockService;
         this.realTimeStockDataService = realTimeStockDataService;
         this.stockRepository = stockRepository;
+        this.companyProfileService = companyProfileService;
+        this.executionLanes = executionLanes;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    // Validation, order creation and a market fill run as one transaction on the portfolio's execution lane,
+    // so the cash and shares they check cannot change underneath them. The market price is resolved first,
+    // off the lane, since it may need an upstream fetch
     public TradingResult buyStock(Long portfolioId, String stockSymbol, Integer quantity, PriceType priceType, BigDecimal limitPrice) {
+        BigDecimal marketPrice = marketPriceFor(stockSymbol, priceType);
+        return executionLanes.call(portfolioId, () -> newTransaction.execute(status ->
+                placeBuyOrder(portfolioId, stockSymbol, quantity, priceType, limitPrice, marketPrice)));
+    }
+
+    private TradingResult placeBuyOrder(Long portfolioId, String stockSymbol, Integer quantity, PriceType priceType,
+                                        BigDecimal limitPrice, BigDecimal marketPrice) {
         validateBuyOrder(portfolioId, stockSymbol, quantity, priceType, limitPrice);
 
         Order order = new Order(portfolioId, stockSymbol, OrderType.BUY, priceType, quantity, limitPrice);
         Order createdOrder = orderService.createOrder(order);
 
         if (priceType == PriceType.MARKET) {
-            OrderExecutionService.OrderExecutionResult executionResult = orderExecutionService.executeOrder(createdOrder.getId());
+            OrderExecutionService.OrderExecutionResult executionResult =
+                    orderExecutionService.executeOrder(createdOrder.getId(), marketPrice);
             if (executionResult.isSuccess()) {
                 // Track symbol after successful execution
                 realTimeStockDataService.trackSymbol(stockSymbol);
@@ -72,15 +93,22 @@ public class TradingService {
     }
 
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public TradingResult sellStock(Long portfolioId, String stockSymbol, Integer quantity, PriceType priceType, BigDecimal limitPrice) {
+        BigDecimal marketPrice = marketPriceFor(stockSymbol, priceType);
+        return executionLanes.call(portfolioId, () -> newTransaction.execute(status ->
+                placeSellOrder(portfolioId, stockSymbol, quantity, priceType, limitPrice, marketPrice)));
+    }
+
+    private TradingResult placeSellOrder(Long portfolioId, String stockSymbol, Integer quantity, PriceType priceType,
+                                         BigDecimal limitPrice, BigDecimal marketPrice) {
         validateSellOrder(portfolioId, stockSymbol, quantity, priceType, limitPrice);
 
         Order order = new Order(portfolioId, stockSymbol, OrderType.SELL, priceType, quantity, limitPrice);
         Order createdOrder = orderService.createOrder(order);
 
         if (priceType == PriceType.MARKET) {
-            OrderExecutionService.OrderExecutionResult executionResult = orderExecutionService.executeOrder(createdOrder.getId());
+            OrderExecutionService.OrderExecutionResult executionResult =
+                    orderExecutionService.executeOrder(createdOrder.getId(), marketPrice);
             if (executionResult.isSuccess()) {
                 // Track symbol to keep updating after selling
                 realTimeStockDataService.trackSymbol(stockSymbol);
@@ -95,14 +123,24 @@ public class TradingService {
     }
 
 
-    @Transactional
     public TradingResult sellAllShares(Long portfolioId, String stockSymbol, PriceType priceType, BigDecimal limitPrice) {
-        Optional<Position> position = positionService.getPositionByPortfolioAndStock(portfolioId, stockSymbol);
-        if (position.isEmpty()) {
-            throw new EntityNotFoundException("No position found for stock: " + stockSymbol);
-        }
+        BigDecimal marketPrice = marketPriceFor(stockSymbol, priceType);
+        // Read the position on the lane too, so no fill changes it before the sell is placed
+        return executionLanes.call(portfolioId, () -> {
+            Optional<Position> position = positionService.getPositionByPortfolioAndStock(portfolioId, stockSymbol);
+            if (position.isEmpty()) {
+                throw new EntityNotFoundException("No position found for stock: " + stockSymbol);
+            }
+
+            return newTransaction.execute(status -> placeSellOrder(portfolioId, stockSymbol,
+                    position.get().getQuantity(), priceType, limitPrice, marketPrice));
+        });
+    }
 
-        return sellStock(portfolioId, stockSymbol, position.get().getQuantity(), priceType, limitPrice);
+    // Only market orders fill right away; limit orders are filled later from a triggering tick
+    private BigDecimal marketPriceFor(String stockSymbol, PriceType priceType) {
+        return priceType == PriceType.MARKET && stockSymbol != null
+                ? orderExecutionService.currentMarketPrice(stockSymbol) : null;
     }
 
     public TradingQuote getQuote(String stockSymbol, Integer quantity, OrderType orderType) {
@@ -119,7 +157,7 @@ public class TradingService {
         Stock stock = stockRepository.findBySymbol(stockSymbol.toUpperCase())
                 .orElseGet(() -> {
                     StockPrice stockData = realTimeStockDataService.getCurrentStockPrice(stockSymbol);
-                    String companyName = realTimeStockDataService.getCompanyName(stockSymbol);
+                    String companyName = companyProfileService.getCompanyName(stockSymbol);
 
                     Stock newStock = new Stock();
                     newStock.setSymbol(stockSymbol.toUpperCase());
@@ -1,11 +1,8 @@
 package rtp.example.rtp.transaction;
 
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import rtp.example.rtp.portfolio.PortfolioService;
-import rtp.example.rtp.user.User;
-import rtp.example.rtp.user.UserRepository;
 
 import java.util.List;
 
@@ -14,29 +11,20 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final PortfolioService portfolioService;
-    private final UserRepository userRepository;
 
     public TransactionService(TransactionRepository transactionRepository,
-                              PortfolioService portfolioService,
-                              UserRepository userRepository) {
+                              PortfolioService portfolioService) {
         this.transactionRepository = transactionRepository;
         this.portfolioService = portfolioService;
-        this.userRepository = userRepository;
     }
 
-    private Long getCurrentUserId() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        return user.getId();
-    }
-
-    private void verifyTransactionOwnership(Long transactionId) {
+    private Transaction verifyTransactionOwnership(Long transactionId) {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new EntityNotFoundException("Transaction not found: " + transactionId));
 
         // Verify the user owns the portfolio for this transaction
-        portfolioService.getPortfolio(transaction.getPortfolioId());
+        portfolioService.verifyPortfolioOwnership(transaction.getPortfolioId());
+        return transaction;
     }
 
     // Admin only - restrict in controller
@@ -49,10 +37,7 @@ public class TransactionService {
             throw new IllegalArgumentException("Transaction ID cannot be null");
         }
 
-        verifyTransactionOwnership(id);
-
-        return transactionRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Transaction not found: " + id));
+        return verifyTransactionOwnership(id);
     }
 
     public List<Transaction> getTransactionsByPortfolio(Long portfolioId) {
@@ -60,8 +45,7 @@ public class TransactionService {
             throw new IllegalArgumentException("Portfolio ID cannot be null");
         }
 
-        // This will verify ownership
-        portfolioService.getPortfolio(portfolioId);
+        portfolioService.verifyPortfolioOwnership(portfolioId);
 
         return transactionRepository.findByPortfolioId(portfolioId);
     }
@@ -76,7 +60,7 @@ public class TransactionService {
 
         // Verify user owns at least one of the transactions
         if (!transactions.isEmpty()) {
-            portfolioService.getPortfolio(transactions.get(0).getPortfolioId());
+            portfolioService.verifyPortfolioOwnership(transactions.get(0).getPortfolioId());
         }
 
         return transactions;
@@ -91,7 +75,7 @@ public class TransactionService {
         }
 
         // Verify user owns the portfolio
-        portfolioService.getPortfolio(transaction.getPortfolioId());
+        portfolioService.verifyPortfolioOwnership(transaction.getPortfolioId());
 
         return transactionRepository.save(transaction);
     }
@@ -1,8 +1,9 @@
 package rtp.example.rtp.user;
 
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import rtp.example.rtp.auth.AuthorizationContext;
+import rtp.example.rtp.auth.jwt.TokenDenylist;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -10,16 +11,18 @@ import java.util.List;
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final AuthorizationContext authorizationContext;
+    private final TokenDenylist tokenDenylist;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, AuthorizationContext authorizationContext,
+                       TokenDenylist tokenDenylist) {
         this.userRepository = userRepository;
+        this.authorizationContext = authorizationContext;
+        this.tokenDenylist = tokenDenylist;
     }
 
     private Long getCurrentUserId() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        return user.getId();
+        return authorizationContext.currentUserId();
     }
 
     // Admin only - restrict in controller with @PreAuthorize
@@ -60,6 +63,8 @@ public class UserService {
         }
 
         userRepository.deleteById(id);
+        // Tokens carry the user, so they would keep working until they expire
+        tokenDenylist.revokeUser(id);
     }
 
     public BigDecimal getBalance(Long id) {
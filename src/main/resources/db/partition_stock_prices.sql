@@ -0,0 +1,46 @@
+-- One-time conversion of stock_prices to daily range partitions (PostgreSQL 12+).
+-- Afterwards PriceHistoryRetention creates upcoming partitions and drops expired ones instead of
+-- deleting rows. Run while the application is stopped.
+
+BEGIN;
+
+ALTER TABLE stock_prices RENAME TO stock_prices_legacy;
+
+CREATE TABLE stock_prices (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    symbol         VARCHAR(255)   NOT NULL,
+    price          NUMERIC(19, 4) NOT NULL,
+    change_amount  NUMERIC(19, 4),
+    change_percent NUMERIC(5, 2),
+    volume         BIGINT         NOT NULL,
+    timestamp      TIMESTAMP(6)   NOT NULL,
+    source         VARCHAR(255)   NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE INDEX idx_stock_prices_timestamp ON stock_prices (timestamp);
+CREATE INDEX idx_stock_prices_symbol_timestamp ON stock_prices (symbol, timestamp);
+
+-- Keep ids increasing across the conversion
+SELECT setval(pg_get_serial_sequence('stock_prices', 'id'),
+              COALESCE((SELECT MAX(id) FROM stock_prices_legacy), 0) + 1, false);
+
+-- Daily partitions for the retention window and the coming week (stock_prices_pYYYYMMDD)
+DO $$
+DECLARE
+    day DATE;
+BEGIN
+    FOR day IN SELECT generate_series(current_date - 14, current_date + 7, INTERVAL '1 day')::date LOOP
+        EXECUTE format('CREATE TABLE stock_prices_p%s PARTITION OF stock_prices FOR VALUES FROM (%L) TO (%L)',
+                       to_char(day, 'YYYYMMDD'), day, day + 1);
+    END LOOP;
+END $$;
+
+INSERT INTO stock_prices (id, symbol, price, change_amount, change_percent, volume, timestamp, source)
+SELECT id, symbol, price, change_amount, change_percent, volume, timestamp, source
+FROM stock_prices_legacy
+WHERE timestamp >= current_date - 14;
+
+COMMIT;
+
+DROP TABLE stock_prices_legacy;
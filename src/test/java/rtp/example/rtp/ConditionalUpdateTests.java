@@ -0,0 +1,143 @@
+package rtp.example.rtp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import rtp.example.rtp.order.Order;
+import rtp.example.rtp.order.OrderRepository;
+import rtp.example.rtp.order.OrderStatus;
+import rtp.example.rtp.order.OrderType;
+import rtp.example.rtp.order.PriceType;
+import rtp.example.rtp.portfolio.Portfolio;
+import rtp.example.rtp.portfolio.PortfolioRepository;
+import rtp.example.rtp.positions.Position;
+import rtp.example.rtp.positions.PositionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The conditional updates behind trades: many threads race for the same cash, shares or order, and only as
+ * many as the row allows may win.
+ */
+@SpringBootTest
+class ConditionalUpdateTests {
+
+    private static final int THREADS = 16;
+    // Portfolio user ids are unique; keep clear of the ids registered users get
+    private static final AtomicLong userIds = new AtomicLong(-System.nanoTime());
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Run the update once per thread, all released at the same moment; returns the number of rows changed
+    private int race(IntSupplier update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> update.getAsInt());
+                }));
+            }
+            start.countDown();
+            int changed = 0;
+            for (Future<Integer> result : results) {
+                changed += result.get();
+            }
+            return changed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Portfolio newPortfolio(String cash) {
+        return portfolioRepository.save(new Portfolio(userIds.decrementAndGet(), new BigDecimal(cash)));
+    }
+
+    @Test
+    void debitCashNeverOverdraws() throws Exception {
+        Long portfolioId = newPortfolio("1000.00").getId();
+
+        int debited = race(() -> portfolioRepository.debitCash(portfolioId, new BigDecimal("150.00")));
+
+        assertEquals(6, debited);
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                portfolioRepository.findById(portfolioId).orElseThrow().getCashBalance()));
+    }
+
+    @Test
+    void removeSharesNeverSellsMoreThanHeld() throws Exception {
+        Long portfolioId = newPortfolio("0.00").getId();
+        positionRepository.save(new Position(portfolioId, "AAPL", 50, new BigDecimal("150.0000")));
+
+        int removed = race(() -> positionRepository.removeShares(portfolioId, "AAPL", 7));
+
+        assertEquals(7, removed);
+        Position position = positionRepository.findByPortfolioIdAndStockSymbol(portfolioId, "AAPL").orElseThrow();
+        assertEquals(1, position.getQuantity());
+    }
+
+    @Test
+    void claimFillFillsAnOrderOnce() throws Exception {
+        Long portfolioId = newPortfolio("1000.00").getId();
+        Order order = orderRepository.save(new Order(portfolioId, "AAPL", OrderType.BUY, PriceType.LIMIT, 5,
+                new BigDecimal("150.0000")));
+        LocalDateTime filledAt = LocalDateTime.now();
+
+        int claimed = race(() -> orderRepository.claimFill(order.getId(), new BigDecimal("149.5000"), filledAt));
+
+        assertEquals(1, claimed);
+        Order filled = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(OrderStatus.FILLED, filled.getStatus());
+        assertEquals(0, new BigDecimal("149.5000").compareTo(filled.getFilledPrice()));
+        assertNotNull(filled.getFilledAt());
+    }
+
+    @Test
+    void cancelFillClearsFillDetails() {
+        Long portfolioId = newPortfolio("1000.00").getId();
+        Order order = orderRepository.save(new Order(portfolioId, "AAPL", OrderType.BUY, PriceType.LIMIT, 5,
+                new BigDecimal("150.0000")));
+
+        // A claim that then fails its cash check is cancelled in the same transaction
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(1, orderRepository.claimFill(order.getId(), new BigDecimal("149.5000"), LocalDateTime.now()));
+            assertEquals(1, orderRepository.cancelFill(order.getId()));
+        });
+
+        Order cancelled = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(OrderStatus.CANCELLED, cancelled.getStatus());
+        assertNull(cancelled.getFilledPrice());
+        assertNull(cancelled.getFilledAt());
+        // No longer pending, so a later claim cannot fill it
+        Integer reclaimed = transactionTemplate.execute(status ->
+                orderRepository.claimFill(order.getId(), new BigDecimal("149.5000"), LocalDateTime.now()));
+        assertEquals(0, reclaimed);
+        // Nor can a second cancel touch it again
+        Integer recancelled = transactionTemplate.execute(status -> orderRepository.cancelFill(order.getId()));
+        assertEquals(0, recancelled);
+    }
+}
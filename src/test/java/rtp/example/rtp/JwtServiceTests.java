@@ -0,0 +1,132 @@
+package rtp.example.rtp;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import rtp.example.rtp.auth.jwt.JwtService;
+import rtp.example.rtp.user.Role;
+import rtp.example.rtp.user.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig(JwtService.class)
+@TestPropertySource(properties = {
+        "jwt.secret=" + JwtServiceTests.SECRET,
+        "jwt.expiration=3600000"
+})
+class JwtServiceTests {
+
+    static final String SECRET = "test-secret-key-for-integration-tests-only-1234567890123456";
+
+    @Autowired
+    private JwtService jwtService;
+
+    private static User user(Long id, String username, Role role) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole(role);
+        return user;
+    }
+
+    @Test
+    void userClaimsRoundTrip() {
+        long before = System.currentTimeMillis() / 1000 * 1000;
+        String token = jwtService.generateToken(user(42L, "alice", Role.ADMIN));
+
+        Claims claims = jwtService.parse(token);
+        assertEquals("alice", claims.getSubject());
+        assertEquals(42L, claims.get("uid", Long.class));
+        assertEquals("ADMIN", claims.get("role", String.class));
+        assertNotNull(claims.getId());
+        assertFalse(claims.getIssuedAt().getTime() < before);
+        assertEquals(3600000, claims.getExpiration().getTime() - claims.getIssuedAt().getTime());
+
+        User principal = jwtService.principalFrom(claims);
+        assertEquals(42L, principal.getId());
+        assertEquals("alice", principal.getUsername());
+        assertEquals(Role.ADMIN, principal.getRole());
+        assertEquals("alice", jwtService.extractUsername(token));
+    }
+
+    @Test
+    void everyTokenGetsItsOwnId() {
+        User alice = user(42L, "alice", Role.USER);
+
+        assertNotEquals(jwtService.parse(jwtService.generateToken(alice)).getId(),
+                jwtService.parse(jwtService.generateToken(alice)).getId());
+    }
+
+    @Test
+    void tokenWithoutUserClaimsHasNoPrincipal() {
+        // Tokens from before the user id and role claims existed carry only the username
+        UserDetails legacy = org.springframework.security.core.userdetails.User
+                .withUsername("bob").password("unused").roles("USER").build();
+        Claims claims = jwtService.parse(jwtService.generateToken(Map.of(), legacy));
+
+        assertEquals("bob", claims.getSubject());
+        assertNull(jwtService.principalFrom(claims));
+    }
+
+    @Test
+    void unknownRoleIsRejected() {
+        String token = jwtService.generateToken(Map.of("uid", 42L, "role", "SUPERVISOR"),
+                user(42L, "alice", Role.USER));
+
+        assertThrows(IllegalArgumentException.class, () -> jwtService.principalFrom(jwtService.parse(token)));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtService.generateToken(user(42L, "alice", Role.USER));
+        String[] parts = token.split("\\.");
+        String otherPayload = jwtService.generateToken(user(7L, "mallory", Role.ADMIN)).split("\\.")[1];
+
+        assertThrows(JwtException.class, () -> jwtService.parse(parts[0] + "." + otherPayload + "." + parts[2]));
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        String forged = Jwts.builder()
+                .subject("alice")
+                .claim("uid", 42L)
+                .claim("role", "ADMIN")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor("another-secret-key-that-is-also-long-enough-for-hs256"
+                        .getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertThrows(JwtException.class, () -> jwtService.parse(forged));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String expired = Jwts.builder()
+                .subject("alice")
+                .issuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.parse(expired));
+    }
+
+    @Test
+    void tokenIsValidOnlyForItsUser() {
+        String token = jwtService.generateToken(user(42L, "alice", Role.USER));
+
+        assertTrue(jwtService.isTokenValid(token, user(42L, "alice", Role.USER)));
+        assertFalse(jwtService.isTokenValid(token, user(7L, "bob", Role.USER)));
+    }
+}
@@ -0,0 +1,109 @@
+package rtp.example.rtp;
+
+import org.junit.jupiter.api.Test;
+import rtp.example.rtp.data.LttbDownsampler;
+import rtp.example.rtp.data.LttbDownsampler.HistoryPoint;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbDownsamplerTests {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    private static void assertStrictlyIncreasing(List<HistoryPoint> points) {
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue(points.get(i).getTimestamp().isAfter(points.get(i - 1).getTimestamp()),
+                    "point " + i + " is not after the one before it");
+        }
+    }
+
+    private static boolean containsPoint(List<HistoryPoint> points, LocalDateTime timestamp, double price) {
+        return points.stream().anyMatch(point -> point.getTimestamp().equals(timestamp)
+                && point.getPrice().doubleValue() == price);
+    }
+
+    @Test
+    void rejectsThresholdBelowThree() {
+        assertThrows(IllegalArgumentException.class, () -> new LttbDownsampler(FROM, FROM.plusHours(1), 2));
+    }
+
+    @Test
+    void emptySeriesGivesNoPoints() {
+        assertTrue(new LttbDownsampler(FROM, FROM.plusHours(1), 10).finish().isEmpty());
+    }
+
+    @Test
+    void seriesWithinThresholdIsReturnedUnchanged() {
+        LttbDownsampler downsampler = new LttbDownsampler(FROM, FROM.plusMinutes(10), 10);
+        for (int i = 0; i < 10; i++) {
+            downsampler.add(FROM.plusMinutes(i), 100 + i * 0.25);
+        }
+
+        List<HistoryPoint> points = downsampler.finish();
+        assertEquals(10, downsampler.getCount());
+        assertEquals(10, points.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(FROM.plusMinutes(i), points.get(i).getTimestamp());
+            assertEquals(100 + i * 0.25, points.get(i).getPrice().doubleValue());
+        }
+    }
+
+    @Test
+    void longSeriesKeepsEndsAndSpikes() {
+        LttbDownsampler downsampler = new LttbDownsampler(FROM, FROM.plusSeconds(1000), 20);
+        for (int i = 0; i < 1000; i++) {
+            double price = i == 437 ? 250.0 : i == 612 ? 20.0 : 100 + (i % 7) * 0.01;
+            downsampler.add(FROM.plusSeconds(i), price);
+        }
+
+        List<HistoryPoint> points = downsampler.finish();
+        assertEquals(1000, downsampler.getCount());
+        assertTrue(points.size() <= 20, "expected at most 20 points, got " + points.size());
+        assertStrictlyIncreasing(points);
+        assertEquals(FROM, points.get(0).getTimestamp());
+        assertEquals(FROM.plusSeconds(999), points.get(points.size() - 1).getTimestamp());
+        assertTrue(containsPoint(points, FROM.plusSeconds(437), 250.0), "high spike should be kept");
+        assertTrue(containsPoint(points, FROM.plusSeconds(612), 20.0), "low spike should be kept");
+    }
+
+    @Test
+    void lastPointAloneInItsBucketIsKeptOnce() {
+        // 100s buckets; the final point sits on the range end, alone in a bucket of its own
+        LttbDownsampler downsampler = new LttbDownsampler(FROM, FROM.plusSeconds(800), 10);
+        for (int i = 0; i < 80; i++) {
+            downsampler.add(FROM.plusSeconds(i * 10L), 100 + (i % 3));
+        }
+        downsampler.add(FROM.plusSeconds(800), 105);
+
+        List<HistoryPoint> points = downsampler.finish();
+        assertEquals(10, points.size());
+        assertStrictlyIncreasing(points);
+        assertEquals(FROM, points.get(0).getTimestamp());
+        assertTrue(containsPoint(points, FROM.plusSeconds(800), 105), "last point should be kept");
+        assertTrue(points.get(8).getTimestamp().isAfter(FROM.plusSeconds(699)),
+                "the bucket before the last point should still pick a point");
+    }
+
+    @Test
+    void lastPointIsTakenOutOfTailBucketBeforePicking() {
+        // The last bucket holds several points; the final one is kept as is and must not be picked twice
+        LttbDownsampler downsampler = new LttbDownsampler(FROM, FROM.plusSeconds(1000), 12);
+        for (int i = 0; i < 100; i++) {
+            double price = i == 95 ? 1000.0 : 100;
+            downsampler.add(FROM.plusSeconds(i * 10L), price);
+        }
+        downsampler.add(FROM.plusSeconds(995), 300);
+
+        List<HistoryPoint> points = downsampler.finish();
+        assertTrue(points.size() <= 12, "expected at most 12 points, got " + points.size());
+        assertStrictlyIncreasing(points);
+        assertEquals(FROM.plusSeconds(995), points.get(points.size() - 1).getTimestamp());
+        assertEquals(300.0, points.get(points.size() - 1).getPrice().doubleValue());
+        // The tail bucket's own pick comes from what is left once the last point is out
+        assertEquals(FROM.plusSeconds(950), points.get(points.size() - 2).getTimestamp());
+        assertEquals(1000.0, points.get(points.size() - 2).getPrice().doubleValue());
+    }
+}
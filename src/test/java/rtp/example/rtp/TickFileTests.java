@@ -0,0 +1,156 @@
+package rtp.example.rtp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rtp.example.rtp.data.archive.TickArchive;
+import rtp.example.rtp.data.archive.TickFile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickFileTests {
+
+    @TempDir
+    Path archiveDir;
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static List<long[]> readAll(byte[] bytes, long fromMillis, long toMillis, boolean withVolume) {
+        List<long[]> ticks = new ArrayList<>();
+        TickFile.read(ByteBuffer.wrap(bytes), fromMillis, toMillis, withVolume,
+                (time, price, volume) -> ticks.add(new long[]{time, price, volume}));
+        return ticks;
+    }
+
+    @Test
+    void ticksRoundTripThroughZigzagVarints() {
+        long start = millis(LocalDateTime.of(2024, 3, 1, 9, 30));
+        // Rising and falling prices give negative deltas; gaps and volumes span one to several varint bytes
+        long[][] ticks = {
+                {start, 1_502_500, 100},
+                {start, 1_502_500, 0},
+                {start + 1, 1_502_400, 127},
+                {start + 250, 1_499_999, 128},
+                {start + 60_000, 2_000_000, 1_000_000},
+                {start + 3_600_000, 1, Long.MAX_VALUE},
+                {start + 3_600_001, 1_000_000_000_000L, 42},
+        };
+        TickFile.Writer writer = new TickFile.Writer();
+        for (long[] tick : ticks) {
+            writer.add(tick[0], tick[1], tick[2]);
+        }
+        assertEquals(ticks.length, writer.getCount());
+
+        List<long[]> read = readAll(writer.toBytes(), Long.MIN_VALUE, Long.MAX_VALUE, true);
+        assertEquals(ticks.length, read.size());
+        for (int i = 0; i < ticks.length; i++) {
+            assertArrayEquals(ticks[i], read.get(i), "tick " + i);
+        }
+    }
+
+    @Test
+    void negativeVolumeIsStoredAsZero() {
+        TickFile.Writer writer = new TickFile.Writer();
+        writer.add(1_000, 10_000, -5);
+
+        assertEquals(0, readAll(writer.toBytes(), Long.MIN_VALUE, Long.MAX_VALUE, true).get(0)[2]);
+    }
+
+    @Test
+    void readSkipsVolumesWhenNotAskedFor() {
+        TickFile.Writer writer = new TickFile.Writer();
+        writer.add(1_000, 10_000, 500);
+        writer.add(2_000, 9_000, 700);
+
+        List<long[]> read = readAll(writer.toBytes(), Long.MIN_VALUE, Long.MAX_VALUE, false);
+        assertArrayEquals(new long[]{1_000, 10_000, 0}, read.get(0));
+        assertArrayEquals(new long[]{2_000, 9_000, 0}, read.get(1));
+    }
+
+    @Test
+    void readReturnsOnlyTicksInHalfOpenRange() {
+        TickFile.Writer writer = new TickFile.Writer();
+        for (long time = 0; time < 10; time++) {
+            writer.add(time * 1_000, 10_000 + time, 1);
+        }
+
+        List<long[]> read = readAll(writer.toBytes(), 3_000, 6_000, false);
+        assertEquals(3, read.size());
+        assertEquals(3_000, read.get(0)[0]);
+        assertEquals(5_000, read.get(2)[0]);
+    }
+
+    @Test
+    void readRejectsOtherFiles() {
+        byte[] notAnArchive = "not a tick archive file, just text".getBytes(StandardCharsets.US_ASCII);
+
+        assertThrows(IllegalStateException.class,
+                () -> readAll(notAnArchive, Long.MIN_VALUE, Long.MAX_VALUE, false));
+    }
+
+    @Test
+    void scanReadsMappedDayFilesUpToWatermark() throws Exception {
+        LocalDate first = LocalDate.of(2024, 3, 1);
+        writeDay("AAPL", first, first.atTime(10, 0), 3);
+        // No file for the second day: a day without ticks
+        writeDay("AAPL", first.plusDays(2), first.plusDays(2).atTime(10, 0), 2);
+        // Past the watermark, so still served from the database rather than the archive
+        writeDay("AAPL", first.plusDays(3), first.plusDays(3).atTime(10, 0), 4);
+        Files.writeString(archiveDir.resolve("archived-until"), first.plusDays(3).toString());
+
+        TickArchive archive = new TickArchive(true, archiveDir.toString());
+        List<Long> times = new ArrayList<>();
+        long count = archive.scan("aapl", first.atStartOfDay(), first.plusDays(5).atStartOfDay(),
+                (time, price, volume) -> times.add(time));
+
+        assertEquals(5, count);
+        assertEquals(5, times.size());
+        assertEquals(millis(first.atTime(10, 0)), times.get(0));
+        assertEquals(millis(first.plusDays(2).atTime(10, 1)), times.get(4));
+        for (int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i) > times.get(i - 1), "ticks should come in timestamp order");
+        }
+    }
+
+    @Test
+    void scanIgnoresSymbolsOutsideArchive() throws Exception {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        Files.writeString(archiveDir.resolve("archived-until"), day.plusDays(1).toString());
+        TickArchive archive = new TickArchive(true, archiveDir.toString());
+
+        assertEquals(0, archive.scan("../../etc", day.atStartOfDay(), day.plusDays(1).atStartOfDay(),
+                (time, price, volume) -> fail("no ticks expected")));
+    }
+
+    @Test
+    void scanFindsSymbolsUnderEncodedDirectoryNames() throws Exception {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        writeDay("BINANCE%3ABTCUSDT", day, day.atTime(10, 0), 3);
+        Files.writeString(archiveDir.resolve("archived-until"), day.plusDays(1).toString());
+        TickArchive archive = new TickArchive(true, archiveDir.toString());
+
+        assertEquals(3, archive.scan("binance:btcusdt", day.atStartOfDay(), day.plusDays(1).atStartOfDay(),
+                (time, price, volume) -> { }));
+    }
+
+    // One tick per minute from the given time, in the archive's on-disk layout
+    private void writeDay(String symbol, LocalDate day, LocalDateTime from, int ticks) throws Exception {
+        TickFile.Writer writer = new TickFile.Writer();
+        for (int i = 0; i < ticks; i++) {
+            writer.add(millis(from.plusMinutes(i)), 1_500_000 + i * 100, 10);
+        }
+        Path dir = Files.createDirectories(archiveDir.resolve(symbol));
+        Files.write(dir.resolve(day + ".ticks"), writer.toBytes());
+    }
+}
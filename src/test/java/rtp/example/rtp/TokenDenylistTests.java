@@ -0,0 +1,115 @@
+package rtp.example.rtp;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import rtp.example.rtp.auth.jwt.TokenDenylist;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenDenylistTests {
+
+    private static final long LIFETIME_MILLIS = 3_600_000;
+
+    // Claims as parsed from a token issued at the given time; a null user id stands for a legacy token
+    private static Claims claims(String tokenId, Long userId, long issuedAtMillis) {
+        var builder = Jwts.claims()
+                .subject("alice")
+                .id(tokenId)
+                .issuedAt(new Date(issuedAtMillis))
+                .expiration(new Date(issuedAtMillis + LIFETIME_MILLIS));
+        if (userId != null) {
+            builder.add("uid", userId);
+        }
+        return builder.build();
+    }
+
+    private static Claims claims(Long userId, long issuedAtMillis) {
+        return claims(UUID.randomUUID().toString(), userId, issuedAtMillis);
+    }
+
+    @Test
+    void revokingTokenLeavesOtherTokensOfUserValid() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME_MILLIS);
+        long now = System.currentTimeMillis();
+        Claims loggedOut = claims(42L, now);
+        Claims otherDevice = claims(42L, now);
+
+        denylist.revoke("token-a", loggedOut);
+
+        assertTrue(denylist.isRevoked("token-a", loggedOut));
+        assertFalse(denylist.isRevoked("token-b", otherDevice));
+    }
+
+    @Test
+    void tokensAreRevokedByIdNotText() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME_MILLIS);
+        Claims claims = claims(42L, System.currentTimeMillis());
+
+        denylist.revoke("token-a", claims);
+
+        assertTrue(denylist.isRevoked("token-a-with-other-text", claims));
+    }
+
+    @Test
+    void tokensWithoutIdAreRevokedByText() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME_MILLIS);
+        long now = System.currentTimeMillis();
+        Claims revoked = claims(null, 42L, now);
+        Claims other = claims(null, 42L, now);
+
+        denylist.revoke("token-a", revoked);
+
+        assertTrue(denylist.isRevoked("token-a", revoked));
+        assertFalse(denylist.isRevoked("token-b", other));
+    }
+
+    @Test
+    void revokingUserRevokesTokensIssuedUntilThen() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME_MILLIS);
+        long now = System.currentTimeMillis();
+        Claims earlier = claims(42L, now - 60_000);
+        Claims sameSecond = claims(42L, now);
+        Claims otherUser = claims(7L, now - 60_000);
+
+        denylist.revokeUser(42L);
+
+        assertTrue(denylist.isRevoked("earlier", earlier));
+        assertTrue(denylist.isRevoked("same-second", sameSecond));
+        assertFalse(denylist.isRevoked("other-user", otherUser));
+        // Issued after the revocation, e.g. on logging in again
+        assertFalse(denylist.isRevoked("later", claims(42L, now + 2_000)));
+    }
+
+    @Test
+    void revokingUserDoesNotReachLegacyTokens() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME_MILLIS);
+        Claims legacy = claims(null, System.currentTimeMillis() - 60_000);
+
+        denylist.revokeUser(42L);
+
+        assertFalse(denylist.isRevoked("legacy", legacy));
+    }
+
+    @Test
+    void purgeDropsEntriesOnceTokensHaveExpired() {
+        // Negative lifetime: user revocations are due for purging as soon as they are made
+        TokenDenylist denylist = new TokenDenylist(-1);
+        long now = System.currentTimeMillis();
+        Claims expired = claims(7L, now - 2 * LIFETIME_MILLIS);
+        Claims current = claims(8L, now);
+        Claims userToken = claims(42L, now - 60_000);
+        denylist.revoke("expired", expired);
+        denylist.revoke("current", current);
+        denylist.revokeUser(42L);
+
+        denylist.purgeExpired();
+
+        assertFalse(denylist.isRevoked("expired", expired));
+        assertTrue(denylist.isRevoked("current", current));
+        assertFalse(denylist.isRevoked("user-token", userToken));
+    }
+}
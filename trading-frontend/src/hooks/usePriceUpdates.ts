@@ -1,6 +1,6 @@
 import { useEffect, useRef } from "react";
 import SockJS from "sockjs-client";
-import { Client } from "@stomp/stompjs";
+import { Client, StompSubscription } from "@stomp/stompjs";
 
 interface StockPrice {
   symbol: string;
@@ -8,10 +8,66 @@ interface StockPrice {
   change: number;
   changePercent: number;
   timestamp: string;
+  sequence: number;
 }
 
-export function usePriceUpdates(onPriceUpdate: (data: StockPrice) => void) {
+// Subscribes to /topic/prices/{SYMBOL} for each given symbol, so only watched symbols are delivered.
+// Each subscription starts with a snapshot of the latest price; a gap in the per-symbol sequence
+// numbers after that triggers a resubscribe, which brings a fresh snapshot.
+export function usePriceUpdates(symbols: string[], onPriceUpdate: (data: StockPrice) => void) {
   const clientRef = useRef<Client | null>(null);
+  const subscriptionsRef = useRef<Map<string, StompSubscription>>(new Map());
+  const symbolsRef = useRef<string[]>([]);
+  const onPriceUpdateRef = useRef(onPriceUpdate);
+  const sequencesRef = useRef<Map<string, number>>(new Map());
+
+  onPriceUpdateRef.current = onPriceUpdate;
+  symbolsRef.current = Array.from(new Set(symbols.map((s) => s.toUpperCase())));
+  const symbolsKey = [...symbolsRef.current].sort().join(",");
+
+  // Bring the live subscriptions in line with the current symbol list
+  const syncSubscriptions = () => {
+    const client = clientRef.current;
+    if (!client || !client.connected) return;
+
+    const wanted = new Set(symbolsRef.current);
+    subscriptionsRef.current.forEach((subscription, symbol) => {
+      if (!wanted.has(symbol)) {
+        subscription.unsubscribe();
+        subscriptionsRef.current.delete(symbol);
+        sequencesRef.current.delete(symbol);
+      }
+    });
+    wanted.forEach((symbol) => {
+      if (!subscriptionsRef.current.has(symbol)) {
+        subscribe(client, symbol);
+      }
+    });
+  };
+
+  const subscribe = (client: Client, symbol: string) => {
+    sequencesRef.current.delete(symbol);
+    const subscription = client.subscribe(`/topic/prices/${symbol}`, (message) => {
+      const snapshot = message.headers["snapshot"] === "true";
+      // Batched broadcasts carry an array of updates per frame
+      const data = JSON.parse(message.body);
+      for (const update of (Array.isArray(data) ? data : [data]) as StockPrice[]) {
+        const last = sequencesRef.current.get(symbol);
+        if (last !== undefined && update.sequence <= last) {
+          continue; // already covered by the snapshot or an earlier update
+        }
+        if (!snapshot && last !== undefined && update.sequence > last + 1) {
+          // Missed an update: start over with a fresh snapshot
+          subscription.unsubscribe();
+          subscribe(client, symbol);
+          return;
+        }
+        sequencesRef.current.set(symbol, update.sequence);
+        onPriceUpdateRef.current(update);
+      }
+    });
+    subscriptionsRef.current.set(symbol, subscription);
+  };
 
   useEffect(() => {
     // Use environment variable for API URL
@@ -22,17 +78,15 @@ export function usePriceUpdates(onPriceUpdate: (data: StockPrice) => void) {
 
     console.log("Connecting to WebSocket:", socketUrl);
 
-    const socket = new SockJS(socketUrl);
     const client = new Client({
-      webSocketFactory: () => socket as any,
+      webSocketFactory: () => new SockJS(socketUrl) as any,
       debug: (str) => console.log(str),
       reconnectDelay: 5000,
       onConnect: () => {
         console.log("WebSocket connected");
-        client.subscribe("/topic/prices", (message) => {
-          const data = JSON.parse(message.body);
-          onPriceUpdate(data);
-        });
+        // Subscriptions do not survive a reconnect; resubscribing brings fresh snapshots
+        subscriptionsRef.current.clear();
+        syncSubscriptions();
       },
       onStompError: (frame) => {
         console.error("STOMP error:", frame);
@@ -46,9 +100,15 @@ export function usePriceUpdates(onPriceUpdate: (data: StockPrice) => void) {
     clientRef.current = client;
 
     return () => {
-      if (clientRef.current) {
-        clientRef.current.deactivate();
-      }
+      subscriptionsRef.current.clear();
+      clientRef.current = null;
+      client.deactivate();
     };
-  }, [onPriceUpdate]);
-}
\ No newline at end of file
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, []);
+
+  useEffect(() => {
+    syncSubscriptions();
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [symbolsKey]);
+}
@@ -84,7 +84,7 @@ export const DashboardPage: React.FC = () => {
     loadDashboardData();
   }, []);
 
-  usePriceUpdates((updatedPrice) => {
+  usePriceUpdates(positions.map((pos) => pos.stockSymbol), (updatedPrice) => {
     setPositions((prevPositions) =>
       prevPositions.map((pos) =>
         pos.stockSymbol === updatedPrice.symbol